@@ -0,0 +1,100 @@
+/**
+ * Author: Luke Gehman
+ * The letters a dictionary's words, and the boards played with it, are made of. Each letter has a code from 0 up
+ * to the number of letters, in the order the letters were given, which is the order words are sorted in the
+ * dictionary's trie. An alphabet may have up to MAX_LETTERS letters, the most a trie node has room for.
+ */
+public class Alphabet {
+    public static final int MAX_LETTERS = TrieBuilder.LETTER_MASK + 1;
+    public static final Alphabet ENGLISH = new Alphabet("abcdefghijklmnopqrstuvwxyz");
+
+    private String letters;
+    private int[] codes;        //For each char up to the highest letter, its code plus one, or 0
+
+    /**
+     * @param letters Each letter of the alphabet once, in sorting order
+     */
+    public Alphabet(String letters){
+        if(letters.isEmpty() || letters.length() > MAX_LETTERS){
+            throw new IllegalArgumentException("An alphabet needs 1 to " + MAX_LETTERS + " letters: " + letters);
+        }
+        this.letters = letters;
+        char highest = 0;
+        for(int i=0;i<letters.length();i++){
+            highest = (char) Math.max(highest, letters.charAt(i));
+        }
+        codes = new int[highest + 1];
+        for(int i=0;i<letters.length();i++){
+            if(codes[letters.charAt(i)] != 0){
+                throw new IllegalArgumentException("Letter '" + letters.charAt(i) + "' appears twice: " + letters);
+            }
+            codes[letters.charAt(i)] = i + 1;
+        }
+    }
+
+    /**
+     * @param letter Any character
+     * @return The letter's code, or -1 if it isn't in the alphabet
+     */
+    public int code(char letter){
+        return letter < codes.length ? codes[letter] - 1 : -1;
+    }
+
+    /**
+     * @param code A code from 0 to size()-1
+     * @return The letter with that code
+     */
+    public char letter(int code){
+        return letters.charAt(code);
+    }
+
+    /**
+     * @param letter Any character
+     * @return True if the character is a letter of the alphabet
+     */
+    public boolean contains(char letter){
+        return code(letter) != -1;
+    }
+
+    /**
+     * @param word Any string
+     * @return True if the string is made up of only letters of the alphabet
+     */
+    public boolean spells(String word){
+        for(int i=0;i<word.length();i++){
+            if(!contains(word.charAt(i))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of letters
+     */
+    public int size(){
+        return letters.length();
+    }
+
+    /**
+     * @return The letters in code order
+     */
+    public String getLetters(){
+        return letters;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof Alphabet && ((Alphabet) other).letters.equals(letters);
+    }
+
+    @Override
+    public int hashCode(){
+        return letters.hashCode();
+    }
+
+    @Override
+    public String toString(){
+        return letters;
+    }
+}
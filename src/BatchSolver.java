@@ -0,0 +1,145 @@
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Author: Luke Gehman
+ * Generates and solves a large number of boards without a GUI, for studying the board generator. Each board is
+ * written out as one tab separated line: its number, word count, max score, longest word and letters. The work is
+ * split across every core with a fork-join pool, and each worker thread keeps its own generator and solver.
+ * Board number i is generated from seed + i, so a run can be repeated exactly whatever the number of threads.
+ *
+ * Usage: java BatchSolver [boards] [threads] [-q] [-s seed] [-n size] [-c capacity] [-f spill file]
+ * -q prints only the summary, which goes to standard error.
+ * -s sets the seed, which is otherwise random and printed with the summary.
+ * -n sets the number of rows and columns on each board, 5 by default.
+ * -c keeps up to that many solved boards in a SolutionCache, so repeated boards aren't solved again.
+ * -f spills the cache to a file, so a later run with the same seed finds its boards there.
+ * The dictionary is the one named by the "boggle.dictionary" system property (see Dictionaries).
+ */
+public class BatchSolver {
+
+    private static final int BOARDS_PER_TASK = 256;
+
+    private static Dictionary dictionary;
+    private static PrintStream out;
+    private static boolean quiet;
+    private static int traySize = 5;
+    private static long seed = new SplittableRandom().nextLong();
+    private static SolutionCache cache;
+    private static LongAdder totalWords = new LongAdder();
+    private static ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    public static void main(String[] args){
+        long boards = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int position = 0;
+        int cacheCapacity = 0;
+        String spillFile = null;
+        for(int i=0;i<args.length;i++){
+            if(args[i].equals("-q")){
+                quiet = true;
+            } else if(args[i].equals("-s") && i+1 < args.length){
+                seed = Long.parseLong(args[++i]);
+            } else if(args[i].equals("-n") && i+1 < args.length){
+                traySize = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-c") && i+1 < args.length){
+                cacheCapacity = Integer.parseInt(args[++i]);
+            } else if(args[i].equals("-f") && i+1 < args.length){
+                spillFile = args[++i];
+            } else if(position++ == 0){
+                boards = Long.parseLong(args[i]);
+            } else {
+                threads = Integer.parseInt(args[i]);
+            }
+        }
+        out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+        dictionary = Dictionaries.get();
+        System.err.println(dictionary);
+        if(cacheCapacity > 0){
+            cache = new SolutionCache(cacheCapacity, dictionary, spillFile == null ? null : Paths.get(spillFile));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        pool.invoke(new SolveTask(0, boards));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        out.flush();
+        System.err.printf("%d boards on %d threads in %.2f s: %.0f boards/s, %.1f words per board, seed %d%n",
+                boards, threads, seconds, boards / seconds, totalWords.doubleValue() / boards, seed);
+        if(cache != null){
+            cache.close();
+            System.err.println(cache);
+        }
+    }
+
+    /**
+     * Solves a range of boards, splitting it in half until it is small enough to do on one thread.
+     */
+    private static class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private long from;
+        private long to;
+
+        /**
+         * @param from The number of the first board
+         * @param to One past the number of the last board
+         */
+        SolveTask(long from, long to){
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= BOARDS_PER_TASK){
+                workers.get().solve(from, to);
+            } else {
+                long middle = (from + to) >>> 1;
+                invokeAll(new SolveTask(from, middle), new SolveTask(middle, to));
+            }
+        }
+    }
+
+    /**
+     * The generator, solver and output buffer belonging to one worker thread.
+     */
+    private static class Worker {
+        private BoardGenerator generator = new BoardGenerator(traySize, traySize, dictionary.getAlphabet());
+        private Solver solver = new Solver(dictionary);
+        private StringBuilder lines = new StringBuilder();
+
+        /**
+         * Generates and solves a range of boards, then writes out their lines all at once.
+         * @param from The number of the first board
+         * @param to One past the number of the last board
+         */
+        void solve(long from, long to){
+            long words = 0;
+            for(long i=from;i<to;i++){
+                Board board = generator.generate(seed + i);
+                Solution solution = cache == null ? solver.solve(board) : cache.solve(board, solver);
+                words += solution.getWordCount();
+                if(!quiet){
+                    lines.append(i).append('\t').append(solution.getWordCount()).append('\t')
+                            .append(solution.getMaxScore()).append('\t').append(solution.getLongestWord())
+                            .append('\t').append(board.getLetters()).append('\n');
+                }
+            }
+            totalWords.add(words);
+            if(!quiet){
+                synchronized(out){
+                    out.append(lines);
+                }
+                lines.setLength(0);
+            }
+        }
+    }
+}
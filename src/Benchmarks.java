@@ -0,0 +1,119 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Author: Luke Gehman
+ * Measures the hot paths of the game against the real dictionary and seeded boards: dictionary lookups, searching
+ * a board for a word, generating boards, and solving boards. Each benchmark is warmed up and then run repeatedly
+ * for a fixed time, and its throughput and the bytes it allocates per call are printed.
+ *
+ * Usage: java Benchmarks [name filter] [measure seconds]
+ */
+public class Benchmarks {
+
+    private static final long SEED = 20180227;
+    private static final int BOARDS = 1024;
+
+    private static volatile long sink;       //Keeps results alive so the JIT can't skip the work
+    private static String filter = "";
+    private static long measureNanos = 2_000_000_000L;
+
+    /**
+     * One call of the code being measured.
+     */
+    private interface Benchmark {
+        /**
+         * @param i The number of this call, for cycling through inputs
+         * @return Any value derived from the result
+         */
+        long run(int i);
+    }
+
+    public static void main(String[] args){
+        if(args.length > 0){
+            filter = args[0];
+        }
+        if(args.length > 1){
+            measureNanos = (long)(Double.parseDouble(args[1]) * 1e9);
+        }
+        Dictionary dictionary = Dictionaries.get();
+        System.out.println(dictionary);
+
+        String[] hits = {"boggle", "tray", "quiz", "aardvark", "zyzzyva", "letter", "search", "dictionary"};
+        String[] misses = {"bogglez", "trayq", "qzx", "aardvarkk", "zzzzz", "lettre", "serch", "dictionaryy"};
+        String[] longWords = {"antidisestablishmentarianism", "electrocardiographically",
+                "counterrevolutionaries", "floccinaucinihilipilification"};
+        measure("dictionary.contains hit", i -> dictionary.contains(hits[i & 7]) ? 1 : 0);
+        measure("dictionary.contains miss", i -> dictionary.contains(misses[i & 7]) ? 1 : 0);
+        measure("dictionary.contains long", i -> dictionary.contains(longWords[i & 3]) ? 1 : 0);
+
+        char[] repeated = new char[25];
+        Arrays.fill(repeated, 'e');
+        repeated[0] = 's';
+        repeated[24] = 'x';
+        Board worstCase = new Board(5, 5, repeated);
+        //Every letter and pair of letters is on the board, so only a full search can tell there is no tile next
+        //to both the x and the s, after trying every path of five e's
+        measure("board.contains repeated letters", i -> worstCase.contains("eeeeexes") ? 1 : 0);
+
+        BoardGenerator generator = new BoardGenerator(5, 5, SEED);
+        Board[] boards = new Board[BOARDS];
+        for(int i=0;i<BOARDS;i++){
+            boards[i] = generator.generate();
+        }
+        measure("board.contains seeded boards", i -> boards[i & (BOARDS-1)].contains(hits[i & 7]) ? 1 : 0);
+        String[] submissions = new String[BOARDS];
+        BoardGenerator sampler = new BoardGenerator(1, 8, SEED);
+        for(int i=0;i<BOARDS;i++){
+            submissions[i] = new String(sampler.generate().getLetters(), 0, 3 + (i & 3));
+        }
+        measure("board.contains random submissions",
+                i -> boards[(i >>> 10) & (BOARDS-1)].contains(submissions[i & (BOARDS-1)]) ? 1 : 0);
+        measure("generator.generate", i -> generator.generate().getLetter(0));
+
+        Solver solver = new Solver(dictionary);
+        measure("solver.solve", i -> solver.solve(boards[i & (BOARDS-1)]).getMaxScore());
+    }
+
+    /**
+     * Warms a benchmark up, then runs it for the measurement time and prints its throughput and allocation rate.
+     * @param name The benchmark's name, which is skipped if it doesn't contain the filter
+     * @param benchmark The code to measure
+     */
+    private static void measure(String name, Benchmark benchmark){
+        if(!name.contains(filter)){
+            return;
+        }
+        run(benchmark, measureNanos / 2);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long calls = run(benchmark, measureNanos);
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.printf("%-34s %,14.0f ops/s %,12.1f ns/op %,10.1f B/op%n", name,
+                calls * 1e9 / elapsed, (double) elapsed / calls, (double) bytes / calls);
+    }
+
+    /**
+     * Calls a benchmark in batches until the given time has passed.
+     * @param benchmark The code to call
+     * @param nanos How long to keep calling it
+     * @return The number of calls made
+     */
+    private static long run(Benchmark benchmark, long nanos){
+        long end = System.nanoTime() + nanos;
+        long calls = 0;
+        long result = 0;
+        do{
+            for(int i=0;i<1024;i++){
+                result += benchmark.run((int) calls + i);      //Counts on across batches, so every input is used
+            }
+            calls += 1024;
+        } while(System.nanoTime() < end);
+        sink = result;
+        return calls;
+    }
+}
@@ -0,0 +1,353 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Author: Luke Gehman
+ * The letters on a Boggle tray, independent of how they are displayed. A board never changes once it is made, so
+ * it can be searched from any thread. Can check to see if a particular string is on the board with the contains()
+ * method. Boards may be any size: up to 64 tiles the tiles used by a search are tracked in the bits of a long,
+ * beyond that in an array of longs, and from PARALLEL_THRESHOLD tiles up the search from each starting tile runs
+ * in parallel. The first search builds an index of the board, which lets most words that aren't on it be ruled
+ * out in one pass over their letters, and starts the rest only from tiles holding their first letter.
+ */
+public class Board {
+    public static final int PARALLEL_THRESHOLD = 400;
+
+    private static final LatencyHistogram SEARCHES = Metrics.histogram("board.contains");
+
+    private int height;
+    private int width;
+    private char[] letters;
+    private volatile Index index;     //Built on the first search
+
+    /**
+     * @param height The number of rows
+     * @param width The number of columns
+     * @param letters The letters on the board, row by row
+     */
+    public Board(int height, int width, char[] letters){
+        if(height < 1 || width < 1 || letters.length != height*width){
+            throw new IllegalArgumentException("Expected " + height*width + " letters but got " + letters.length);
+        }
+        this.height = height;
+        this.width = width;
+        this.letters = letters.clone();
+    }
+
+    /**
+     * @param height The number of rows
+     * @param width The number of columns
+     * @param letter The letter to put on every tile
+     * @return A board with the same letter on every tile
+     */
+    public static Board filled(int height, int width, char letter){
+        char[] letters = new char[height*width];
+        Arrays.fill(letters, letter);
+        return new Board(height, width, letters);
+    }
+
+    /**
+     * Checks if a particular word is on the board.
+     * @param word A string to check
+     * @return True if the string is on the board
+     */
+    public boolean contains(String word){
+        long start = Metrics.startHotPath();
+        boolean found = findPath(word);
+        SEARCHES.recordSince(start);
+        return found;
+    }
+
+    /**
+     * @param word A string to check
+     * @return True if there is a path of neighbouring tiles spelling the string
+     */
+    private boolean findPath(String word){
+        if(word.isEmpty()){
+            return false;
+        }
+        Index index = getIndex();
+        if(!index.couldContain(word)){
+            return false;
+        }
+        int first = index.code(word.charAt(0));
+        int from = index.letterStarts[first];
+        int to = index.letterStarts[first+1];
+        if(letters.length <= Long.SIZE){
+            for(int i=from;i<to;i++){
+                int cell = index.cellsByLetter[i];
+                if(checkForWord(index,word,1,cell,1L << cell)){
+                    return true;
+                }
+            }
+            return false;
+        }
+        int words = (letters.length + Long.SIZE-1) / Long.SIZE;
+        if(letters.length < PARALLEL_THRESHOLD){
+            long[] tilesUsed = new long[words];
+            for(int i=from;i<to;i++){
+                if(checkFromTile(index,word,index.cellsByLetter[i],tilesUsed)){
+                    return true;
+                }
+            }
+            return false;
+        }
+        return IntStream.range(from, to).parallel()
+                .anyMatch(i -> checkFromTile(index,word,index.cellsByLetter[i],new long[words]));
+    }
+
+    /**
+     * @return The board's index, which is built the first time it is needed. Two threads may both build it, but
+     * they build the same thing, so either can be kept.
+     */
+    private Index getIndex(){
+        Index built = index;
+        if(built == null){
+            built = new Index(this);
+            index = built;
+        }
+        return built;
+    }
+
+    /**
+     * Checks for a word starting on a particular tile of a board too large to track used tiles in one long.
+     * @param index The board's index
+     * @param word The string to check
+     * @param cell The tile holding the first letter of the word
+     * @param tilesUsed A bit for each tile, all clear, which are left clear afterwards
+     * @return True if the word can be constructed from that tile
+     */
+    private boolean checkFromTile(Index index, String word, int cell, long[] tilesUsed){
+        tilesUsed[cell >>> 6] |= 1L << cell;
+        boolean found = checkForWord(index,word,1,cell,tilesUsed);
+        tilesUsed[cell >>> 6] &= ~(1L << cell);
+        return found;
+    }
+
+    /**
+     * Recursively checks for the rest of the word, starting at a given index, on the tiles around a given
+     * tile. Keeps track of which tiles have been used with one bit per tile, to avoid using the same tile twice.
+     * @param index The board's index
+     * @param word The string to check
+     * @param position The index of the next letter of the word to find
+     * @param cell The tile the previous letter was found on, numbered row by row
+     * @param tilesUsed A bit for each tile used so far in constructing the word
+     * @return True if the rest of the word can be constructed from that tile
+     */
+    private boolean checkForWord(Index index, String word, int position, int cell, long tilesUsed){
+        if(position==word.length()){
+            return true;
+        }
+        char letter = word.charAt(position);
+        for(int n=index.neighbourStarts[cell];n<index.neighbourStarts[cell+1];n++){
+            int next = index.neighbours[n];
+            if((tilesUsed & (1L << next)) == 0 && letters[next] == letter
+                    && checkForWord(index,word,position+1,next,tilesUsed | (1L << next))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The same search as checkForWord(), for boards with more than 64 tiles. The bit for each tile is set while
+     * the tile is part of the path and cleared again when the search backs out of it.
+     * @param index The board's index
+     * @param word The string to check
+     * @param position The index of the next letter of the word to find
+     * @param cell The tile the previous letter was found on, numbered row by row
+     * @param tilesUsed A bit for each tile, set for each tile used so far in constructing the word
+     * @return True if the rest of the word can be constructed from that tile
+     */
+    private boolean checkForWord(Index index, String word, int position, int cell, long[] tilesUsed){
+        if(position==word.length()){
+            return true;
+        }
+        char letter = word.charAt(position);
+        for(int n=index.neighbourStarts[cell];n<index.neighbourStarts[cell+1];n++){
+            int next = index.neighbours[n];
+            if((tilesUsed[next >>> 6] & (1L << next)) == 0 && letters[next] == letter){
+                tilesUsed[next >>> 6] |= 1L << next;
+                boolean found = checkForWord(index,word,position+1,next,tilesUsed);
+                tilesUsed[next >>> 6] &= ~(1L << next);
+                if(found){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * What a search needs to know about a board, worked out once: each tile's neighbours, which tiles hold each
+     * letter (and so how many of each letter there are), and which pairs of letters are ever next to each other.
+     * Letters are numbered by their place among the board's distinct letters, in order.
+     */
+    private static class Index {
+        //Each thread's count of how many times each letter has come up in the word being checked
+        private static final ThreadLocal<int[]> USES = ThreadLocal.withInitial(() -> new int[Alphabet.ENGLISH.size()]);
+
+        private char lowest;                //The first letter, in order, of those on the board
+        private int[] codes;                //Each letter's number, or -1 if it isn't on the board, at letter - lowest
+        private int[] letterStarts;         //The first of each letter's tiles in cellsByLetter, plus the tile count
+        private int[] cellsByLetter;        //The tiles, grouped by letter
+        private int[] neighbourStarts;      //The first of each tile's neighbours in neighbours, plus the total
+        private int[] neighbours;           //Each tile's neighbours, one tile after another
+        private int count;                  //The number of different letters on the board
+        private boolean[] adjacent;         //Whether letters a and b are on neighbouring tiles, at a*count + b
+
+        /**
+         * @param board The board to index
+         */
+        Index(Board board){
+            char[] letters = board.letters;
+            char[] sorted = letters.clone();
+            Arrays.sort(sorted);
+            int count = 0;
+            for(int i=0;i<sorted.length;i++){
+                if(i == 0 || sorted[i] != sorted[i-1]){
+                    sorted[count++] = sorted[i];
+                }
+            }
+            lowest = sorted[0];
+            codes = new int[sorted[count-1] - lowest + 1];
+            Arrays.fill(codes, -1);
+            for(int k=0;k<count;k++){
+                codes[sorted[k] - lowest] = k;
+            }
+            this.count = count;
+
+            letterStarts = new int[count + 1];
+            int[] cellCodes = new int[letters.length];
+            for(int cell=0;cell<letters.length;cell++){
+                cellCodes[cell] = code(letters[cell]);
+                letterStarts[cellCodes[cell] + 1]++;
+            }
+            for(int k=0;k<count;k++){
+                letterStarts[k+1] += letterStarts[k];
+            }
+            cellsByLetter = new int[letters.length];
+            int[] next = Arrays.copyOf(letterStarts, count);
+            for(int cell=0;cell<letters.length;cell++){
+                cellsByLetter[next[cellCodes[cell]]++] = cell;
+            }
+
+            int height = board.height;
+            int width = board.width;
+            neighbourStarts = new int[letters.length + 1];
+            int[] found = new int[letters.length * 8];
+            int total = 0;
+            adjacent = new boolean[count * count];
+            for(int cell=0;cell<letters.length;cell++){
+                neighbourStarts[cell] = total;
+                int row = cell / width;
+                int column = cell % width;
+                for(int i=Math.max(row-1,0);i<=Math.min(row+1,height-1);i++){
+                    for(int j=Math.max(column-1,0);j<=Math.min(column+1,width-1);j++){
+                        int neighbour = i*width + j;
+                        if(neighbour != cell){
+                            found[total++] = neighbour;
+                            adjacent[cellCodes[cell]*count + cellCodes[neighbour]] = true;
+                        }
+                    }
+                }
+            }
+            neighbourStarts[letters.length] = total;
+            neighbours = Arrays.copyOf(found, total);
+        }
+
+        /**
+         * @param letter Any character
+         * @return The letter's number among the board's letters, or -1 if it isn't on the board
+         */
+        int code(char letter){
+            int offset = letter - lowest;
+            return offset >= 0 && offset < codes.length ? codes[offset] : -1;
+        }
+
+        /**
+         * Rules out words that can't be on the board without searching for them: words with a letter that isn't
+         * on the board, with more of a letter than the board has, or with two letters next to each other that
+         * are never next to each other on the board.
+         * @param word A string to check
+         * @return False if the string is certainly not on the board, otherwise true
+         */
+        boolean couldContain(String word){
+            int[] uses = USES.get();
+            if(uses.length < count){
+                uses = new int[count];
+                USES.set(uses);
+            }
+            Arrays.fill(uses, 0, count, 0);
+            int previous = -1;
+            for(int i=0;i<word.length();i++){
+                int code = code(word.charAt(i));
+                if(code == -1 || (previous != -1 && !adjacent[previous*count + code])){
+                    return false;
+                }
+                if(++uses[code] > letterStarts[code+1] - letterStarts[code]){
+                    return false;
+                }
+                previous = code;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @param row The row index
+     * @param column The column index
+     * @return The letter on that tile
+     */
+    public char getLetter(int row, int column){
+        return letters[row*width + column];
+    }
+
+    /**
+     * @param cell A tile, numbered row by row
+     * @return The letter on that tile
+     */
+    public char getLetter(int cell){
+        return letters[cell];
+    }
+
+    /**
+     * @return A copy of the letters on the board, row by row
+     */
+    public char[] getLetters(){
+        return letters.clone();
+    }
+
+    /**
+     * @return The number of rows
+     */
+    public int getHeight(){
+        return height;
+    }
+
+    /**
+     * @return The number of columns
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * @return The number of tiles
+     */
+    public int size(){
+        return letters.length;
+    }
+
+    /**
+     * @return The letters on the board, one row per line
+     */
+    @Override
+    public String toString(){
+        StringBuilder stringBuilder = new StringBuilder();
+        for(int i=0;i<height;i++){
+            stringBuilder.append(letters, i*width, width).append('\n');
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Author: Luke Gehman
+ * Generates random boards from the letters of an Alphabet, a to z unless another is given. No more than 4 of a
+ * given letter may appear on a 5x5 board, a limit which grows and shrinks in proportion to the number of tiles on
+ * other sizes of board (and is raised if the alphabet is too small to fill the board), and there is increased
+ * likelihood of a 'u' appearing next to a 'q' if the alphabet has them. A generator made with a seed always
+ * produces the same sequence of boards, and generate(seed) always produces the same board for the same seed.
+ */
+public class BoardGenerator {
+
+    private static final LatencyHistogram GENERATIONS = Metrics.histogram("generator.generate");
+    private final int LETTER_MAX;
+    private final int U_CODE;
+    private Alphabet alphabet;
+    private int height;
+    private int width;
+    private int[] letterCounts;
+    private char[] available;
+    private int availableCount;
+    private char[] letters;
+    private SplittableRandom rand;
+
+    /**
+     * Sets up a generator with a random seed.
+     * @param height The number of rows on the boards to generate
+     * @param width The number of columns on the boards to generate
+     */
+    public BoardGenerator(int height, int width){
+        this(height, width, Alphabet.ENGLISH, new SplittableRandom());
+    }
+
+    /**
+     * Sets up a generator with a random seed which uses the letters of a particular alphabet.
+     * @param height The number of rows on the boards to generate
+     * @param width The number of columns on the boards to generate
+     * @param alphabet The letters to draw from, such as the dictionary's
+     */
+    public BoardGenerator(int height, int width, Alphabet alphabet){
+        this(height, width, alphabet, new SplittableRandom());
+    }
+
+    /**
+     * Sets up a generator which produces the same sequence of boards every time for a given seed. A generator is
+     * not safe to share between threads, so each thread should have its own.
+     * @param height The number of rows on the boards to generate
+     * @param width The number of columns on the boards to generate
+     * @param seed The seed for the sequence of boards
+     */
+    public BoardGenerator(int height, int width, long seed){
+        this(height, width, Alphabet.ENGLISH, new SplittableRandom(seed));
+    }
+
+    /**
+     * Sets up a generator which produces the same sequence of boards from a particular alphabet for a given seed.
+     * @param height The number of rows on the boards to generate
+     * @param width The number of columns on the boards to generate
+     * @param alphabet The letters to draw from, such as the dictionary's
+     * @param seed The seed for the sequence of boards
+     */
+    public BoardGenerator(int height, int width, Alphabet alphabet, long seed){
+        this(height, width, alphabet, new SplittableRandom(seed));
+    }
+
+    /**
+     * @param height The number of rows on the boards to generate
+     * @param width The number of columns on the boards to generate
+     * @param alphabet The letters to draw from
+     * @param rand The source of random numbers
+     */
+    private BoardGenerator(int height, int width, Alphabet alphabet, SplittableRandom rand){
+        this.height = height;
+        this.width = width;
+        this.alphabet = alphabet;
+        this.rand = rand;
+        int tiles = height*width;
+        LETTER_MAX = Math.max(letterMax(tiles), (tiles + alphabet.size()-1) / alphabet.size());
+        U_CODE = alphabet.code('u');
+        letterCounts = new int[alphabet.size()];
+        available = new char[alphabet.size()];
+    }
+
+    /**
+     * @param tiles The number of tiles on a board
+     * @return The most times one letter may appear on the board: 4 for every 25 tiles, rounded up
+     */
+    public static int letterMax(int tiles){
+        return Math.max(1, (4*tiles + 24) / 25);
+    }
+
+    /**
+     * @return The most times one letter may appear on the boards this generates
+     */
+    public int getLetterMax(){
+        return LETTER_MAX;
+    }
+
+    /**
+     * @return The next random board
+     */
+    public Board generate(){
+        long start = Metrics.start();
+        letters = new char[height*width];
+        Arrays.fill(letters,'.');
+        generateBoardState();
+        Board board = new Board(height, width, letters);
+        GENERATIONS.recordSince(start);
+        return board;
+    }
+
+    /**
+     * Generates the board for a particular seed, without disturbing this generator's own sequence.
+     * @param seed Any number, such as one derived from the date for a daily board
+     * @return The board for that seed, which is the same every time
+     */
+    public Board generate(long seed){
+        SplittableRandom sequence = rand;
+        rand = new SplittableRandom(seed);
+        try{
+            return generate();
+        } finally {
+            rand = sequence;
+        }
+    }
+
+    /**
+     * Sets up each tile with a letter. No more than LETTER_MAX of a given letter may appear on the
+     * board. There is increased likelihood of a 'u' appearing next to a 'q' tile. Letters are
+     * only drawn from those which haven't reached the limit yet, so no draw is ever wasted.
+     */
+    private void generateBoardState(){
+        Arrays.fill(letterCounts,0);
+        alphabet.getLetters().getChars(0, alphabet.size(), available, 0);
+        availableCount = available.length;
+        char letter;
+        for(int i=0;i<height;i++){
+            for(int j=0;j<width;j++){
+                if(alphabet.contains(letters[i*width + j])){
+                    continue;
+                }
+                letter = getRandomLetter();
+                letters[i*width + j] = letter;
+                addLetter(letter);
+                if(letter=='q'){
+                    handleQ(i,j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the tile either immediately preceding or following the index given with a new
+     * random letter which is heavily favored to be a 'u'
+     * @param i The row of the q
+     * @param j The column of the q
+     */
+    private void handleQ(int i, int j){
+        if(width == 1){
+            return;         //No tile beside the q
+        }
+        char newLetter = getRandomLetterUFavored();
+        if(j == width-1){
+            removeLetter(letters[i*width + j-1]);
+            letters[i*width + j-1] = newLetter;
+            addLetter(newLetter);
+            if(newLetter == 'q'){
+                handleQ(i,j-1);
+            }
+        } else {
+            letters[i*width + j+1] = newLetter;
+            addLetter(newLetter);
+            if(newLetter == 'q'){
+                handleQ(i,j+1);
+            }
+        }
+    }
+
+    /**
+     * Counts a letter placed on the board, taking it out of the available letters if it has reached the limit.
+     * @param letter A letter of the alphabet
+     */
+    private void addLetter(char letter){
+        if(++letterCounts[alphabet.code(letter)] == LETTER_MAX){
+            for(int k=0;k<availableCount;k++){
+                if(available[k] == letter){
+                    available[k] = available[--availableCount];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Uncounts a letter taken off the board, making it available again if it had reached the limit.
+     * @param letter A letter of the alphabet
+     */
+    private void removeLetter(char letter){
+        if(letterCounts[alphabet.code(letter)]-- == LETTER_MAX){
+            available[availableCount++] = letter;
+        }
+    }
+
+    /**
+     * @return A random letter of the alphabet which hasn't reached the limit
+     */
+    private char getRandomLetter(){
+        if(availableCount == 0){
+            throw new IllegalStateException("Every letter has been used " + LETTER_MAX + " times");
+        }
+        return available[rand.nextInt(availableCount)];
+    }
+
+    /**
+     * @return A random letter which hasn't reached the limit, with ~80% chance of being a 'u' if it is available
+     */
+    private char getRandomLetterUFavored(){
+        if(U_CODE != -1 && rand.nextInt(10) > 1 && letterCounts[U_CODE] < LETTER_MAX){
+            return 'u';
+        } else {
+            return getRandomLetter();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author: Luke Gehman
+ * Keeps a small queue of boards that have already been generated and solved, so a new game can start without
+ * waiting for either. A background thread refills the queue whenever a board is taken, skipping boards with too
+ * few words or too low a maximum score, or, if given a target, searching for boards that meet it with a
+ * TargetedBoardGenerator. After REJECTION_LIMIT boards in a row are skipped, the closest of them is kept anyway,
+ * so minimums that are too strict slow the pool down rather than stopping it. If the background thread fails, it
+ * is reported and take() fails straight away rather than waiting for a board that will never come. Keeps count of
+ * how often a board had to be waited for (starvation) and how long the background thread takes to produce each
+ * board.
+ */
+public class BoardPool {
+    public static final int REJECTION_LIMIT = 1000;
+
+    private static final long TARGET_BUDGET_MILLIS = 200;
+    private static final long FAILURE_CHECK_MILLIS = 50;
+
+    private BlockingQueue<Solution> queue;
+    private int minWords;
+    private int minScore;
+    private Thread producer;
+    private volatile RuntimeException failure;
+
+    private AtomicLong produced = new AtomicLong();
+    private AtomicLong rejected = new AtomicLong();
+    private AtomicLong relaxed = new AtomicLong();
+    private AtomicLong producerNanos = new AtomicLong();
+    private AtomicLong maxProducerNanos = new AtomicLong();
+    private AtomicLong taken = new AtomicLong();
+    private AtomicLong starved = new AtomicLong();
+    private AtomicLong starvedNanos = new AtomicLong();
+
+    /**
+     * Sets up the pool and starts filling it.
+     * @param dictionary The dictionary to solve boards with
+     * @param height The number of rows on each board
+     * @param width The number of columns on each board
+     * @param depth The number of boards to keep ready
+     * @param minWords The fewest words a board may have to be kept
+     * @param minScore The lowest maximum score a board may have to be kept
+     */
+    public BoardPool(Dictionary dictionary, int height, int width, int depth, int minWords, int minScore){
+        this(dictionary, new BoardGenerator(height, width, dictionary.getAlphabet()), depth, minWords, minScore);
+    }
+
+    /**
+     * Sets up a pool which produces the same sequence of boards every time for a given seed, and starts filling
+     * it.
+     * @param dictionary The dictionary to solve boards with
+     * @param height The number of rows on each board
+     * @param width The number of columns on each board
+     * @param depth The number of boards to keep ready
+     * @param minWords The fewest words a board may have to be kept
+     * @param minScore The lowest maximum score a board may have to be kept
+     * @param seed The seed for the sequence of boards
+     */
+    public BoardPool(Dictionary dictionary, int height, int width, int depth, int minWords, int minScore,
+                     long seed){
+        this(dictionary, new BoardGenerator(height, width, dictionary.getAlphabet(), seed), depth, minWords,
+                minScore);
+    }
+
+    /**
+     * @param dictionary The dictionary to solve boards with
+     * @param generator The generator, used only on the producer thread
+     * @param depth The number of boards to keep ready
+     * @param minWords The fewest words a board may have to be kept
+     * @param minScore The lowest maximum score a board may have to be kept
+     */
+    private BoardPool(Dictionary dictionary, BoardGenerator generator, int depth, int minWords, int minScore){
+        queue = new ArrayBlockingQueue<>(Math.max(depth, 1));
+        this.minWords = minWords;
+        this.minScore = minScore;
+        Solver solver = new Solver(dictionary);
+        startProducer(() -> produce(generator, solver));
+    }
+
+    /**
+     * Sets up a pool of boards meeting a target and starts filling it, searching with a worker thread for each
+     * core.
+     * @param dictionary The dictionary to solve boards with
+     * @param height The number of rows on each board
+     * @param width The number of columns on each board
+     * @param depth The number of boards to keep ready
+     * @param target What each board must be like
+     */
+    public BoardPool(Dictionary dictionary, int height, int width, int depth, TargetedBoardGenerator.Target target){
+        queue = new ArrayBlockingQueue<>(Math.max(depth, 1));
+        TargetedBoardGenerator generator = new TargetedBoardGenerator(dictionary, height, width,
+                Runtime.getRuntime().availableProcessors());
+        startProducer(() -> produce(generator, target));
+    }
+
+    /**
+     * @param production The producer thread's work
+     */
+    private void startProducer(Runnable production){
+        producer = new Thread(production, "BoardPool");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * Generates and solves boards until interrupted, waiting whenever the queue is full.
+     * @param generator The generator, used only on the producer thread
+     * @param solver The solver, used only on the producer thread
+     */
+    private void produce(BoardGenerator generator, Solver solver){
+        try{
+            while(!Thread.currentThread().isInterrupted()){
+                long start = System.nanoTime();
+                Solution solution = solver.solve(generator.generate());
+                Solution closest = solution;
+                int misses = 0;
+                while(solution.getWordCount() < minWords || solution.getMaxScore() < minScore){
+                    rejected.incrementAndGet();
+                    if(shortfall(solution) < shortfall(closest)){
+                        closest = solution;
+                    }
+                    if(++misses == REJECTION_LIMIT){
+                        relaxed.incrementAndGet();
+                        solution = closest;
+                        break;
+                    }
+                    solution = solver.solve(generator.generate());
+                }
+                record(System.nanoTime() - start);
+                queue.put(solution);
+            }
+        } catch (InterruptedException e){
+            //Closed, so stop producing
+        } catch (RuntimeException e){
+            fail(e);
+        }
+    }
+
+    /**
+     * @param solution A solved board
+     * @return How many words and points the board is short of the minimums by
+     */
+    private int shortfall(Solution solution){
+        return Math.max(minWords - solution.getWordCount(), 0) + Math.max(minScore - solution.getMaxScore(), 0);
+    }
+
+    /**
+     * Reports that the background thread has stopped because of an error, so take() fails from now on.
+     * @param e The error
+     */
+    private void fail(RuntimeException e){
+        e.printStackTrace();
+        failure = e;
+    }
+
+    /**
+     * Searches for boards meeting a target until interrupted, waiting whenever the queue is full. A search which
+     * runs out of time without meeting the target counts as a rejected board, and is started again.
+     * @param generator The generator, closed when the producer stops
+     * @param target What each board must be like
+     */
+    private void produce(TargetedBoardGenerator generator, TargetedBoardGenerator.Target target){
+        try{
+            while(!Thread.currentThread().isInterrupted()){
+                long start = System.nanoTime();
+                Solution solution = generator.generate(target, TARGET_BUDGET_MILLIS);
+                Solution closest = solution;
+                int misses = 0;
+                while(!target.matches(solution)){
+                    rejected.incrementAndGet();
+                    if(target.distance(solution) < target.distance(closest)){
+                        closest = solution;
+                    }
+                    if(++misses == REJECTION_LIMIT){
+                        relaxed.incrementAndGet();
+                        solution = closest;
+                        break;
+                    }
+                    solution = generator.generate(target, TARGET_BUDGET_MILLIS);
+                }
+                record(System.nanoTime() - start);
+                queue.put(solution);
+            }
+        } catch (InterruptedException e){
+            //Closed, so stop producing
+        } catch (RuntimeException e){
+            fail(e);
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * @param elapsed The time taken to produce a board that was kept, in nanoseconds
+     */
+    private void record(long elapsed){
+        produced.incrementAndGet();
+        producerNanos.addAndGet(elapsed);
+        maxProducerNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * @return The next ready board, or null if there isn't one yet
+     */
+    public Solution poll(){
+        Solution solution = queue.poll();
+        if(solution != null){
+            taken.incrementAndGet();
+        }
+        return solution;
+    }
+
+    /**
+     * Takes the next ready board, waiting for one if the queue has run dry, but no longer than the timeout.
+     * @param timeoutMillis The most time to wait, in milliseconds
+     * @return A solved board, or null if none was ready in time
+     * @throws InterruptedException If interrupted while waiting
+     * @throws IllegalStateException If the background thread has stopped because of an error
+     */
+    public Solution take(long timeoutMillis) throws InterruptedException {
+        Solution solution = poll();
+        if(solution != null){
+            return solution;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        starved.incrementAndGet();
+        try{
+            while(solution == null){
+                if(failure != null){
+                    throw new IllegalStateException("The board pool stopped producing boards", failure);
+                }
+                long left = deadline - System.nanoTime();
+                if(left <= 0){
+                    return null;
+                }
+                solution = queue.poll(Math.min(left, TimeUnit.MILLISECONDS.toNanos(FAILURE_CHECK_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+            }
+            taken.incrementAndGet();
+            return solution;
+        } finally {
+            starvedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    public void close(){
+        producer.interrupt();
+    }
+
+    /**
+     * @return The number of boards ready to be taken
+     */
+    public int getReadyCount(){
+        return queue.size();
+    }
+
+    /**
+     * @return The number of times take() found the queue empty
+     */
+    public long getStarvationCount(){
+        return starved.get();
+    }
+
+    /**
+     * @return The total time spent waiting in take() for an empty queue, in milliseconds
+     */
+    public long getStarvationMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(starvedNanos.get());
+    }
+
+    /**
+     * @return The number of boards kept without meeting the minimums or target, after REJECTION_LIMIT misses
+     */
+    public long getRelaxedCount(){
+        return relaxed.get();
+    }
+
+    /**
+     * @return True if the background thread has stopped because of an error
+     */
+    public boolean isFailed(){
+        return failure != null;
+    }
+
+    /**
+     * @return The number of boards thrown away for not meeting the minimum words or score, or the target
+     */
+    public long getRejectedCount(){
+        return rejected.get();
+    }
+
+    /**
+     * @return The average time taken to produce a board that was kept, in milliseconds
+     */
+    public double getAverageProducerMillis(){
+        long count = produced.get();
+        return count == 0 ? 0 : producerNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * @return The longest time taken to produce a board that was kept, in milliseconds
+     */
+    public double getMaxProducerMillis(){
+        return maxProducerNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("BoardPool: %d ready, %d taken, %d starved (%d ms), %d rejected, %d relaxed, " +
+                        "producer avg %.2f ms max %.2f ms%s", getReadyCount(), taken.get(), getStarvationCount(),
+                getStarvationMillis(), getRejectedCount(), getRelaxedCount(), getAverageProducerMillis(),
+                getMaxProducerMillis(), isFailed() ? ", failed: " + failure : "");
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author: Luke Gehman
+ * Load tests a GameServer by connecting many simulated players to it at once. The players are spread evenly over
+ * a number of rooms, and every player asks for a new round as soon as it joins and whenever one ends (the server
+ * starts the first request and turns the rest away), so a room never sits idle. Each player
+ * solves the board it is sent and submits its words one at a time, with a pause between each, mixing in words
+ * that aren't on the board. The time from sending each word to getting its answer is recorded, and a summary is
+ * printed at the end.
+ *
+ * Usage: java ClientSimulator [clients] [rooms] [seconds] [host] [port]
+ * 1000 clients in 10 rooms for 30 seconds against localhost:4000 by default. The pause between words is 50ms
+ * unless the "boggle.sim.thinkMillis" system property is set.
+ */
+public class ClientSimulator {
+
+    private static final long THINK_MILLIS = Long.getLong("boggle.sim.thinkMillis", 50);
+    private static final LatencyHistogram ANSWERS = new LatencyHistogram("sim.answer");
+
+    private static String host = "localhost";
+    private static int port = 4000;
+    private static long deadline;
+    private static Dictionary dictionary;
+    private static SolutionCache cache = new SolutionCache(256);
+    private static ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> new Solver(dictionary));
+    private static AtomicLong connected = new AtomicLong();
+    private static AtomicLong failed = new AtomicLong();
+    private static AtomicLong accepted = new AtomicLong();
+    private static AtomicLong rejected = new AtomicLong();
+    private static AtomicLong rounds = new AtomicLong();
+
+    public static void main(String[] args) throws InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        host = args.length > 3 ? args[3] : host;
+        port = args.length > 4 ? Integer.parseInt(args[4]) : port;
+        dictionary = Dictionaries.get();
+
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService threads = GameServer.newThreadPerTaskExecutor();
+        for(int i=0;i<clients;i++){
+            int client = i;
+            threads.execute(() -> play(client, client % rooms, client < rooms));
+        }
+        threads.shutdown();
+        threads.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+
+        System.out.printf("%d clients connected (%d failed) in %d rooms, %d rounds ended%n", connected.get(),
+                failed.get(), rooms, rounds.get());
+        System.out.printf("%d words: %d accepted, %d rejected, %.0f words/s%n", ANSWERS.getCount(),
+                accepted.get(), rejected.get(), (double) ANSWERS.getCount() / seconds);
+        System.out.printf("answer latency: p50 %.0fus, p90 %.0fus, p99 %.0fus, p99.9 %.0fus, max %.0fus%n",
+                ANSWERS.getMedianMicros(), ANSWERS.getPercentileMicros(90), ANSWERS.get99thPercentileMicros(),
+                ANSWERS.getPercentileMicros(99.9), ANSWERS.getMaxMicros());
+    }
+
+    /**
+     * Plays as one client until the deadline.
+     * @param client The client's number, used for its name
+     * @param room The number of the room to join
+     * @param leader True if this client counts the rounds played in its room
+     */
+    private static void play(int client, int room, boolean leader){
+        Random random = new Random(client);
+        try(Socket socket = new Socket(host, port);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.UTF_8), true)){
+            connected.incrementAndGet();
+            socket.setSoTimeout(30000);
+            out.println("JOIN room" + room + " player" + client);
+            out.println("START");
+            List<String> words = new ArrayList<>();
+            long sentAt = -1;           //When the word waiting for an answer was sent, or -1 if there isn't one
+            String line;
+            while(System.nanoTime() < deadline && (line = in.readLine()) != null){
+                if(line.startsWith("BOARD ")){
+                    words = wordsToTry(line, random);
+                    if(sentAt == -1){
+                        sentAt = submitNext(words, out);
+                    }
+                } else if(line.startsWith("OK ") || line.startsWith("BAD ")){
+                    ANSWERS.record(System.nanoTime() - sentAt);
+                    (line.startsWith("OK ") ? accepted : rejected).incrementAndGet();
+                    Thread.sleep(THINK_MILLIS);
+                    sentAt = submitNext(words, out);
+                } else if(line.startsWith("END ")){
+                    words.clear();
+                    if(leader){
+                        rounds.incrementAndGet();
+                    }
+                    out.println("START");
+                }
+            }
+            out.println("QUIT");
+        } catch (IOException e){
+            failed.incrementAndGet();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Solves the board in a BOARD line, and makes up the words a player will try on it: every word on the board,
+     * in a random order, with every fourth one spelled backwards so that it is usually wrong.
+     * @param line A BOARD line from the server
+     * @param random The client's source of random numbers
+     * @return The words to submit, in order
+     */
+    private static List<String> wordsToTry(String line, Random random){
+        String[] parts = line.split(" ");
+        Board board = new Board(Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), parts[4].toCharArray());
+        List<String> words = new ArrayList<>(cache.solve(board, solvers.get()).getWords());
+        Collections.shuffle(words, random);
+        for(int i=3;i<words.size();i+=4){
+            words.set(i, new StringBuilder(words.get(i)).reverse().toString());
+        }
+        return words;
+    }
+
+    /**
+     * Sends the next word in the list, if there is one left.
+     * @param words The words still to submit, which the word sent is taken off
+     * @param out The connection to the server
+     * @return The time the word was sent, in nanoseconds, or -1 if there were none left
+     */
+    private static long submitNext(List<String> words, PrintWriter out){
+        if(words.isEmpty()){
+            return -1;
+        }
+        long sentAt = System.nanoTime();
+        out.println("WORD " + words.remove(words.size()-1));
+        return sentAt;
+    }
+}
@@ -0,0 +1,137 @@
+import java.lang.ref.SoftReference;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author: Luke Gehman
+ * Loads dictionaries by name and keeps one copy of each for the whole program, so switching word lists between
+ * rounds doesn't read the files again. A dictionary is loaded the first time it is asked for, and is only held
+ * softly afterwards: if memory runs short the garbage collector may drop it, and it is loaded again the next time
+ * it is needed.
+ *
+ * A dictionary named "name" is read from the file in the "boggle.dictionary.name" system property, or otherwise
+ * from "/name.txt" on the classpath. Its letters are given by the "boggle.dictionary.name.alphabet" system
+ * property, and are a to z if that isn't set. The name of the dictionary the game uses is set with the
+ * "boggle.dictionary" system property.
+ */
+public class Dictionaries {
+    public static final String DEFAULT = "dictionary";
+
+    private static ConcurrentHashMap<String,Entry> entries = new ConcurrentHashMap<>();
+    private static AtomicLong hits = new AtomicLong();
+    private static AtomicLong loads = new AtomicLong();
+
+    /**
+     * One named dictionary. Only one thread loads it, and any others asking for it at the same time wait for
+     * that load rather than starting their own.
+     */
+    private static class Entry {
+        private String name;
+        private SoftReference<Dictionary> reference = new SoftReference<>(null);
+
+        /**
+         * @param name The dictionary's name
+         */
+        Entry(String name){
+            this.name = name;
+        }
+
+        /**
+         * @return The dictionary, loading it if it hasn't been loaded or has been dropped
+         */
+        synchronized Dictionary get(){
+            Dictionary dictionary = reference.get();
+            if(dictionary == null){
+                dictionary = load(name);
+                reference = new SoftReference<>(dictionary);
+                loads.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return dictionary;
+        }
+
+        /**
+         * @return True if the dictionary is loaded and hasn't been dropped
+         */
+        boolean isLoaded(){
+            return reference.get() != null;
+        }
+    }
+
+    /**
+     * @return The dictionary named in the "boggle.dictionary" system property, or the default one
+     */
+    public static Dictionary get(){
+        return get(System.getProperty("boggle.dictionary", DEFAULT));
+    }
+
+    /**
+     * @param name The name of a dictionary
+     * @return The dictionary, loaded now if this is the first time it has been asked for
+     */
+    public static Dictionary get(String name){
+        return entries.computeIfAbsent(name, Entry::new).get();
+    }
+
+    /**
+     * @param name The name of a dictionary
+     * @return True if the dictionary is held in memory, so getting it won't load it
+     */
+    public static boolean isLoaded(String name){
+        Entry entry = entries.get(name);
+        return entry != null && entry.isLoaded();
+    }
+
+    /**
+     * @return The number of times a dictionary was asked for and was already loaded
+     */
+    public static long getHitCount(){
+        return hits.get();
+    }
+
+    /**
+     * @return The number of times a dictionary had to be loaded, including reloads after being dropped
+     */
+    public static long getLoadCount(){
+        return loads.get();
+    }
+
+    /**
+     * Finds and loads a dictionary's files. The default dictionary uses the compiled copy from
+     * Dictionary.defaultCompiledPath(), and others a compiled copy next to their text file if there is one.
+     * @param name The name of a dictionary
+     * @return The dictionary
+     */
+    private static Dictionary load(String name){
+        URL url = find(name);
+        if(url == null){
+            throw new IllegalArgumentException("No dictionary named " + name);
+        }
+        String letters = System.getProperty("boggle.dictionary." + name + ".alphabet");
+        Alphabet alphabet = letters == null ? Alphabet.ENGLISH : new Alphabet(letters);
+        Path compiled = DEFAULT.equals(name) ? Dictionary.defaultCompiledPath(url) : Dictionary.siblingPath(url);
+        return new Dictionary(url, compiled, alphabet);
+    }
+
+    /**
+     * @param name The name of a dictionary
+     * @return The dictionary's text file, or null if there isn't one
+     */
+    private static URL find(String name){
+        String path = System.getProperty("boggle.dictionary." + name);
+        if(path == null){
+            return Dictionaries.class.getResource("/" + name + ".txt");
+        }
+        try{
+            return Paths.get(path).toUri().toURL();
+        } catch (MalformedURLException e){
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
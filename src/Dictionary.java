@@ -1,40 +1,463 @@
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Scanner;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 /**
  * Author: Luke Gehman
- * Encapsulates a dictionary text file, and can search that file for a string using the contains() method.
+ * Encapsulates a dictionary text file, whose words are made of the letters of an Alphabet. The words are held in a packed trie (see TrieBuilder), which is either
+ * memory-mapped from a compiled copy of the dictionary (see DictionaryCompiler) or, if that copy is missing or
+ * older than the text file, built by reading the text file once. The contains() and hasPrefix() methods then
+ * search the trie in time proportional to the length of the string, and child() lets a caller walk the trie one
+ * letter at a time. Dictionaries are usually loaded by name through Dictionaries, which keeps one copy of each.
  */
 public class Dictionary {
+    public static final int ROOT = 0;
+
+    private static final LatencyHistogram LOADS = Metrics.histogram("dictionary.load");
+    private static final LatencyHistogram LOOKUPS = Metrics.histogram("dictionary.contains");
+
+    static final int MAGIC = 0x42474457;       //"BGDW"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 36 + 2 * Alphabet.MAX_LETTERS;
+
     private URL urlToDictionary;
+    private Alphabet alphabet;
+    private IntBuffer nodes;
+    private int wordCount;
+    private long loadTimeNanos;
+    private boolean mapped;
+    private volatile long checksum = -1;
 
     /**
-     * Sets up a dictionary with a URL to the dictionary text file, currently "dictionary.txt"
+     * Sets up a dictionary with a URL to the dictionary text file, currently "dictionary.txt", and loads the
+     * words in it. A compiled copy is looked for at the path in the "boggle.dictionary.bin" system property, or
+     * otherwise next to the text file.
      */
     public Dictionary(){
-        urlToDictionary = this.getClass().getResource("/" + "dictionary.txt");
+        this(Dictionary.class.getResource("/" + "dictionary.txt"));
     }
 
     /**
-     * Searches each line of the dictionary for a particular word
-     * @param word A string to search for
-     * @return True if one of the lines in the dictionary matches the string, false otherwise
+     * Sets up a dictionary from a particular text file, using a compiled copy from the default place if there is one.
+     * @param urlToDictionary The dictionary text file
      */
-    public boolean contains(String word) {
+    public Dictionary(URL urlToDictionary){
+        this(urlToDictionary, defaultCompiledPath(urlToDictionary));
+    }
+
+    /**
+     * Sets up a dictionary from a particular text file and compiled copy of it.
+     * @param urlToDictionary The dictionary text file
+     * @param compiled The compiled copy of the file, or null to always read the text file
+     */
+    public Dictionary(URL urlToDictionary, Path compiled){
+        this(urlToDictionary, compiled, Alphabet.ENGLISH);
+    }
+
+    /**
+     * Sets up a dictionary of words in a particular alphabet. Words with letters outside the alphabet are skipped.
+     * @param urlToDictionary The dictionary text file
+     * @param compiled The compiled copy of the file, or null to always read the text file
+     * @param alphabet The letters the words are made of
+     */
+    public Dictionary(URL urlToDictionary, Path compiled, Alphabet alphabet){
+        this.urlToDictionary = urlToDictionary;
+        this.alphabet = alphabet;
+        long start = System.nanoTime();
+        long timed = Metrics.start();
+        if(compiled == null || !loadCompiled(compiled)){
+            loadText();
+        }
+        loadTimeNanos = System.nanoTime() - start;      //Always kept, for toString()
+        LOADS.recordSince(timed);
+    }
+
+    /**
+     * Memory-maps a compiled dictionary, if one exists and was compiled from the current text file with the same
+     * alphabet.
+     * @param compiled The compiled dictionary file
+     * @return True if the trie was mapped from the file
+     */
+    private boolean loadCompiled(Path compiled){
+        if(!Files.isRegularFile(compiled)){
+            return false;
+        }
+        try(FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION){
+                return false;
+            }
+            long[] stamp = sourceStamp(urlToDictionary);
+            if(buffer.getLong(8) != stamp[0] || buffer.getLong(16) != stamp[1]){
+                return false;       //Stale: the text file has changed since it was compiled
+            }
+            if(!alphabet.equals(readAlphabet(buffer))){
+                return false;
+            }
+            int nodeCount = buffer.getInt(28);
+            if(buffer.limit() != HEADER_SIZE + 4L * nodeCount){
+                return false;
+            }
+            wordCount = buffer.getInt(24);
+            buffer.position(HEADER_SIZE);
+            nodes = buffer.slice().asIntBuffer();
+            mapped = true;
+            return true;
+        } catch (IOException e){
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @param buffer A compiled dictionary
+     * @return The alphabet stored in its header
+     */
+    private static Alphabet readAlphabet(ByteBuffer buffer){
+        int size = buffer.getInt(32);
+        if(size < 1 || size > Alphabet.MAX_LETTERS){
+            return null;
+        }
+        char[] letters = new char[size];
+        for(int i=0;i<size;i++){
+            letters[i] = buffer.getChar(36 + 2*i);
+        }
         try{
-            InputStream stream = urlToDictionary.openStream();
-            Scanner scanner = new Scanner(stream);
-            while(scanner.hasNextLine()){
-                if(word.equals(scanner.nextLine())){
-                    return true;
-                }
+            return new Alphabet(new String(letters));
+        } catch (IllegalArgumentException e){
+            return null;
+        }
+    }
+
+    /**
+     * Reads each line of the dictionary text file and builds the trie from them. If the file can't be read the
+     * dictionary is left empty.
+     */
+    private void loadText(){
+        List<String> words = new ArrayList<>();
+        try(InputStream stream = urlToDictionary.openStream();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))){
+            String line;
+            while((line = reader.readLine()) != null){
+                words.add(line);
             }
         } catch (IOException e){
             e.printStackTrace();
         }
+        nodes = IntBuffer.wrap(TrieBuilder.build(words, alphabet));
+        int[] counts = new int[nodes.limit()];
+        Arrays.fill(counts, -1);
+        wordCount = countWords(ROOT, counts);
+        mapped = false;
+    }
+
+    /**
+     * Counts the words reachable from a node. Nodes are shared between words, so each node's count is
+     * remembered rather than worked out again for every path that reaches it.
+     * @param node A node of the trie
+     * @param counts The count for each node already visited, or -1
+     * @return The number of words spelled by the path to this node or any path continuing from it
+     */
+    private int countWords(int node, int[] counts){
+        if(counts[node] == -1){
+            int count = isWord(node) ? 1 : 0;
+            int child = nodes.get(node) >>> TrieBuilder.CHILD_SHIFT;
+            if(child != 0){
+                do{
+                    count += countWords(child, counts);
+                } while((nodes.get(child++) & TrieBuilder.LAST_FLAG) == 0);
+            }
+            counts[node] = count;
+        }
+        return counts[node];
+    }
+
+    /**
+     * Writes the trie out in the compiled format read by loadCompiled(): a header holding the size and last
+     * modified time of the text file it came from and the alphabet, followed by the packed nodes.
+     * @param compiled The file to write
+     * @throws IOException If the file can't be written
+     */
+    public void writeCompiled(Path compiled) throws IOException {
+        long[] stamp = sourceStamp(urlToDictionary);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * nodes.limit());
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(stamp[0]).putLong(stamp[1]);
+        buffer.putInt(wordCount).putInt(nodes.limit());
+        buffer.putInt(alphabet.size());
+        for(int i=0;i<Alphabet.MAX_LETTERS;i++){
+            buffer.putChar(i < alphabet.size() ? alphabet.letter(i) : 0);
+        }
+        for(int i=0;i<nodes.limit();i++){
+            buffer.putInt(nodes.get(i));
+        }
+        buffer.flip();
+        try(FileChannel channel = FileChannel.open(compiled, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @param url A dictionary text file
+     * @return The size and last modified time of the file, used to tell if a compiled copy is stale
+     * @throws IOException If the file can't be reached
+     */
+    private static long[] sourceStamp(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        long[] stamp = {connection.getContentLengthLong(), connection.getLastModified()};
+        connection.getInputStream().close();
+        return stamp;
+    }
+
+    /**
+     * @param url A dictionary text file
+     * @return Where a compiled copy of the file is expected to be, or null if it can't be found on disk
+     */
+    static Path defaultCompiledPath(URL url){
+        String property = System.getProperty("boggle.dictionary.bin");
+        if(property != null){
+            return Paths.get(property);
+        }
+        return siblingPath(url);
+    }
+
+    /**
+     * @param url A dictionary text file
+     * @return The .bin file next to the text file, or null if the text file isn't on disk
+     */
+    static Path siblingPath(URL url){
+        if(url == null || !"file".equals(url.getProtocol())){
+            return null;        //Inside a jar there's nothing to map
+        }
+        try{
+            Path text = Paths.get(url.toURI());
+            String name = text.getFileName().toString().replaceFirst("\\.txt$", "") + ".bin";
+            return text.resolveSibling(name);
+        } catch (URISyntaxException e){
+            return null;
+        }
+    }
+
+    /**
+     * Searches the dictionary for a particular word
+     * @param word A string to search for
+     * @return True if the string is a word in the dictionary, false otherwise
+     */
+    public boolean contains(String word) {
+        long start = Metrics.startHotPath();
+        int node = find(word);
+        boolean found = node != -1 && isWord(node);
+        LOOKUPS.recordSince(start);
+        return found;
+    }
+
+    /**
+     * @param prefix A string to search for
+     * @return True if at least one word in the dictionary starts with the string
+     */
+    public boolean hasPrefix(String prefix){
+        return find(prefix) != -1;
+    }
+
+    /**
+     * Follows the letters of a string down the trie from the root.
+     * @param prefix A string
+     * @return The node reached at the end of the string, or -1 if no word starts with it
+     */
+    public int find(String prefix){
+        int node = ROOT;
+        for(int i=0;i<prefix.length() && node != -1;i++){
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * @return A CRC-32 of the packed trie, which is the same for any two dictionaries with the same words and
+     * alphabet however they were loaded, worked out the first time it is asked for
+     */
+    public long getChecksum(){
+        long sum = checksum;
+        if(sum == -1){
+            ByteBuffer bytes = ByteBuffer.allocate(4 * nodes.limit());
+            for(int i=0;i<nodes.limit();i++){
+                bytes.putInt(nodes.get(i));
+            }
+            bytes.flip();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            sum = crc.getValue();
+            checksum = sum;
+        }
+        return sum;
+    }
+
+    /**
+     * @param node A node of the trie, starting from ROOT
+     * @param letter The next letter
+     * @return The node reached by following the letter from the given node, or -1 if no word continues that way
+     */
+    public int child(int node, char letter){
+        int i = nodes.get(node) >>> TrieBuilder.CHILD_SHIFT;
+        if(i == 0){
+            return -1;
+        }
+        int code = alphabet.code(letter);
+        if(code == -1){
+            return -1;
+        }
+        while(true){
+            int n = nodes.get(i);
+            int nodeCode = n & TrieBuilder.LETTER_MASK;
+            if(nodeCode == code){
+                return i;
+            }
+            if(nodeCode > code || (n & TrieBuilder.LAST_FLAG) != 0){      //Siblings are in alphabetical order
+                return -1;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * @param node A node of the trie, starting from ROOT
+     * @return The node's first child, in alphabet order, or -1 if no word continues past it
+     */
+    public int firstChild(int node){
+        int child = nodes.get(node) >>> TrieBuilder.CHILD_SHIFT;
+        return child == 0 ? -1 : child;
+    }
+
+    /**
+     * @param node A node of the trie other than ROOT
+     * @return The next child of the same parent, in alphabet order, or -1 if this is the last
+     */
+    public int nextSibling(int node){
+        return (nodes.get(node) & TrieBuilder.LAST_FLAG) != 0 ? -1 : node+1;
+    }
+
+    /**
+     * @param node A node of the trie other than ROOT
+     * @return The code, in the dictionary's alphabet, of the letter followed to reach the node
+     */
+    public int letterCode(int node){
+        return nodes.get(node) & TrieBuilder.LETTER_MASK;
+    }
+
+    /**
+     * @param node A node of the trie
+     * @return True if the letters leading to this node spell a word in the dictionary
+     */
+    public boolean isWord(int node){
+        return (nodes.get(node) & TrieBuilder.WORD_FLAG) != 0;
+    }
+
+    /**
+     * @param node A node of the trie
+     * @return True if any word continues past this node
+     */
+    public boolean hasChildren(int node){
+        return (nodes.get(node) >>> TrieBuilder.CHILD_SHIFT) != 0;
+    }
+
+    /**
+     * Calls an action with every word in the dictionary, in alphabet order.
+     * @param action The action to take for each word
+     */
+    public void forEachWord(Consumer<String> action){
+        forEachWord(ROOT, new char[16], 0, action);
+    }
+
+    /**
+     * Calls an action with every word reachable from a node.
+     * @param node A node of the trie
+     * @param word The letters leading to the node, followed by room for more
+     * @param length The number of letters leading to the node
+     * @param action The action to take for each word
+     */
+    private void forEachWord(int node, char[] word, int length, Consumer<String> action){
+        if(isWord(node)){
+            action.accept(new String(word, 0, length));
+        }
+        int child = nodes.get(node) >>> TrieBuilder.CHILD_SHIFT;
+        if(child == 0){
+            return;
+        }
+        if(length == word.length){
+            word = Arrays.copyOf(word, length*2);
+        }
+        do{
+            word[length] = alphabet.letter(nodes.get(child) & TrieBuilder.LETTER_MASK);
+            forEachWord(child, word, length+1, action);
+        } while((nodes.get(child++) & TrieBuilder.LAST_FLAG) == 0);
+    }
+
+    /**
+     * @return The letters the dictionary's words are made of
+     */
+    public Alphabet getAlphabet(){
+        return alphabet;
+    }
+
+    /**
+     * @return The number of words in the dictionary
+     */
+    public int getWordCount(){
+        return wordCount;
+    }
+
+    /**
+     * @return True if the trie is memory-mapped from a compiled dictionary rather than built on the heap
+     */
+    public boolean isMapped(){
+        return mapped;
+    }
+
+    /**
+     * @return The time taken to map or build the trie, in milliseconds
+     */
+    public long getLoadTimeMillis(){
+        return loadTimeNanos / 1_000_000;
+    }
+
+    /**
+     * @return The number of bytes of heap used by the trie, which is next to none when it is mapped
+     */
+    public long getIndexSizeBytes(){
+        return mapped ? 0 : 16 + 4L * nodes.limit();     //Array header plus one int per node
+    }
+
+    /**
+     * @return The number of bytes of the compiled file mapped into memory, or 0 if the trie is on the heap
+     */
+    public long getMappedSizeBytes(){
+        return mapped ? HEADER_SIZE + 4L * nodes.limit() : 0;
+    }
 
-        return false;
+    @Override
+    public String toString(){
+        return String.format("Dictionary (%s): %d words, %d nodes, %d KB heap, %d KB mapped, loaded in %d ms",
+                mapped ? "compiled" : "text", wordCount, nodes.limit(), getIndexSizeBytes() / 1024,
+                getMappedSizeBytes() / 1024, getLoadTimeMillis());
     }
 }
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Author: Luke Gehman
+ * Compiles a dictionary text file into the binary trie that Dictionary memory-maps at startup, then reports how
+ * long each kind of dictionary takes to reach its first lookup and how much memory it holds, and how much memory
+ * the word list would take as a plain set, a packed trie and a DAWG.
+ *
+ * Usage: java DictionaryCompiler [text file] [compiled file] [alphabet]
+ * The text file defaults to src/dictionary.txt, the compiled file to a .bin file next to it, and the alphabet to
+ * the letters a to z.
+ */
+public class DictionaryCompiler {
+
+    public static void main(String[] args) throws IOException {
+        Path text = Paths.get(args.length > 0 ? args[0] : "src/dictionary.txt");
+        URL url = text.toUri().toURL();
+        Path compiled = args.length > 1 ? Paths.get(args[1]) : Dictionary.defaultCompiledPath(url);
+        Alphabet alphabet = args.length > 2 ? new Alphabet(args[2]) : Alphabet.ENGLISH;
+
+        Dictionary dictionary = new Dictionary(url, null, alphabet);
+        dictionary.writeCompiled(compiled);
+        System.out.println("Wrote " + dictionary.getWordCount() + " words to " + compiled);
+
+        report("text", url, null, alphabet);
+        report("compiled", url, compiled, alphabet);
+        reportMemory(Files.readAllLines(text, StandardCharsets.UTF_8), alphabet);
+    }
+
+    /**
+     * Prints the memory a word list takes in each of the forms it could be held in. The size of a HashSet is
+     * estimated for a 64-bit JVM with compressed pointers and compact strings: a 32 byte map entry, a 24 byte
+     * String and a byte array for each word, plus a 4 byte slot per bucket in the table.
+     * @param words The words in the dictionary
+     * @param alphabet The letters the dictionary's words are made of
+     */
+    private static void reportMemory(List<String> words, Alphabet alphabet){
+        long setBytes = 16 + 4L * Integer.highestOneBit(Math.max(1, (int)(words.size() / 0.75)) * 2 - 1);
+        for(String word : words){
+            setBytes += 32 + 24 + ((16 + word.length() + 7) & ~7);
+        }
+        long trieBytes = 4L * TrieBuilder.buildTrie(words, alphabet).length;
+        long dawgBytes = 4L * TrieBuilder.build(words, alphabet).length;
+        System.out.printf("Memory for %d words:%n", words.size());
+        System.out.printf("  HashSet<String> %6d KB  %5.1f bytes/word%n", setBytes / 1024, (double) setBytes / words.size());
+        System.out.printf("  packed trie     %6d KB  %5.1f bytes/word%n", trieBytes / 1024, (double) trieBytes / words.size());
+        System.out.printf("  packed DAWG     %6d KB  %5.1f bytes/word%n", dawgBytes / 1024, (double) dawgBytes / words.size());
+    }
+
+    /**
+     * Loads a dictionary and prints the time to its first lookup and the memory it holds.
+     * @param name A name for this kind of dictionary
+     * @param url The dictionary text file
+     * @param compiled The compiled file to try first, or null to read the text file
+     * @param alphabet The letters the dictionary's words are made of
+     */
+    private static void report(String name, URL url, Path compiled, Alphabet alphabet){
+        long start = System.nanoTime();
+        Dictionary dictionary = new Dictionary(url, compiled, alphabet);
+        dictionary.contains("boggle");
+        long firstLookup = System.nanoTime() - start;
+        System.out.printf("%-8s first lookup after %6.2f ms, %5d KB heap, %5d KB mapped%n", name,
+                firstLookup / 1e6, dictionary.getIndexSizeBytes() / 1024, dictionary.getMappedSizeBytes() / 1024);
+    }
+}
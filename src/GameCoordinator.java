@@ -2,6 +2,7 @@ import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.ObservableList;
@@ -12,6 +13,7 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
@@ -21,6 +23,12 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static javafx.collections.FXCollections.observableArrayList;
 
 /**
@@ -28,32 +36,139 @@ import static javafx.collections.FXCollections.observableArrayList;
  * Operates a full, GUI based game of Boggle.
  */
 public class GameCoordinator extends Application{
+    private static final LatencyHistogram START_STALLS = Metrics.histogram("fx.startNewGame");
+    private static final LatencyHistogram GAME_OVER_STALLS = Metrics.histogram("fx.gameOver");
+    private static final LatencyHistogram VALIDATIONS = Metrics.histogram("round.validate");
+    private static final LatencyHistogram FIRST_FRAME = Metrics.histogram("startup.firstFrame");
+    private static final LatencyHistogram READY = Metrics.histogram("startup.ready");
+
     private Dictionary dictionary;
+    private BoardPool boardPool;
+    private CompletableFuture<Dictionary> dictionaryReady = new CompletableFuture<>();
+    private GameHistory history;
+    private long roundStartMillis;
+    private Solution solution;
+    private boolean roundInProgress = false;
+    private int prefixNode = Dictionary.ROOT;
     private Tray tray;
     private Button startNewGameButton;
+    private ProgressIndicator loadingIndicator;
+    private Label statusLabel;
     private ObservableList<Text> playerWordList;
+    private Map<String,Boolean> playerWords;      //Each word in playerWordList, and whether it is valid
+    private ObservableList<Text> missedWordList;
     private IntegerProperty timeSeconds;
     private Timeline timeline;
-    private int totalScore = 0;
+    private long totalScore = 0;
     private int scoreThisRound = 0;
     private Label scoreThisRoundLabel;
     private Label totalScoreLabel;
+    private Label maxScoreLabel;
 
-    private final Integer GAME_TIME = 180;   //Seconds
+    private final Integer GAME_TIME = Solution.GAME_TIME;   //Seconds
+    private final int TRAY_SIZE = Integer.getInteger("boggle.size", 5);
+    private final int POOL_DEPTH = Integer.getInteger("boggle.pool.depth", 4);
+    private final int POOL_MIN_WORDS = Integer.getInteger("boggle.pool.minWords", 0);
+    private final int POOL_MIN_SCORE = Integer.getInteger("boggle.pool.minScore", 0);
+    private final String POOL_TARGET = System.getProperty("boggle.pool.target");
+    private final Long POOL_SEED = Long.getLong("boggle.pool.seed");
+    private final long BOARD_WAIT_MILLIS = 5000;
+    private final long METRICS_LOG_SECONDS = Long.getLong("boggle.metrics.logSeconds", 0);
 
     /**
-     * The constructor sets up a new dictionary and tray (though initially the tray is not set with letters,
-     * this only happens when set() is called in the startNewGame() method).
+     * The constructor sets up the tray (though initially the tray is not set with letters, this only happens
+     * when set() is called in the startNewGame() method). The dictionary is loaded later, in the background (see
+     * init()). The tray is 5x5 unless the "boggle.size" system property asks for another size, such as 4 for
+     * classic or 6 for Super Big.
      */
     public GameCoordinator() {
-        dictionary = new Dictionary();
-        tray = new Tray();
+        tray = new Tray(TRAY_SIZE, TRAY_SIZE);
         playerWordList = observableArrayList();
+        playerWords = new LinkedHashMap<>();
+        missedWordList = observableArrayList();
         timeSeconds = new SimpleIntegerProperty(GAME_TIME);
     }
 
     /**
-     * Creates a new stage with a new scene based on the Parent node passed from createContent.
+     * Starts loading the dictionary on a background thread, so the window can be shown while it loads, and then
+     * filling the pool of solved boards. The dictionary is the one named by the "boggle.dictionary" system
+     * property (see Dictionaries). The depth of the pool and the minimum words and score of its boards can be set
+     * with the "boggle.pool.depth", "boggle.pool.minWords" and "boggle.pool.minScore" system properties, or
+     * instead the pool can search for boards meeting a target such as "words=80-120,lengths=8" set with the
+     * "boggle.pool.target" system property (see TargetedBoardGenerator.Target.parse()). Setting the
+     * "boggle.pool.seed" system property makes the pool deal the same boards every run. Metrics are printed
+     * periodically if the "boggle.metrics.logSeconds" system property is set. The history of past rounds is
+     * opened, and the total score carries on from the total of every round played before (see GameHistory).
+     */
+    @Override
+    public void init(){
+        Metrics.startLogging(METRICS_LOG_SECONDS);
+        history = new GameHistory(GameHistory.defaultPath());
+        Board board = tray.getBoard();
+        Thread loader = new Thread(() -> loadDictionary(board.getHeight(), board.getWidth()), "Dictionary loader");
+        loader.setDaemon(true);
+        loader.start();
+        totalScore = history.getTotalScore();
+    }
+
+    /**
+     * Loads the dictionary and starts the pool of boards, then completes dictionaryReady. Anything which needs
+     * the dictionary waits on dictionaryReady rather than using it before then. The time from the JVM starting
+     * to the dictionary being ready is recorded.
+     * @param height The number of rows on the tray
+     * @param width The number of columns on the tray
+     */
+    private void loadDictionary(int height, int width){
+        try{
+            dictionary = Dictionaries.get();
+            if(POOL_TARGET != null){
+                boardPool = new BoardPool(dictionary, height, width, POOL_DEPTH,
+                        TargetedBoardGenerator.Target.parse(POOL_TARGET));
+            } else if(POOL_SEED != null){
+                boardPool = new BoardPool(dictionary, height, width,
+                        POOL_DEPTH, POOL_MIN_WORDS, POOL_MIN_SCORE, POOL_SEED);
+            } else {
+                boardPool = new BoardPool(dictionary, height, width,
+                        POOL_DEPTH, POOL_MIN_WORDS, POOL_MIN_SCORE);
+            }
+            recordSinceStartup(READY, "Dictionary ready");
+            dictionaryReady.complete(dictionary);
+        } catch (RuntimeException e){
+            e.printStackTrace();
+            dictionaryReady.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Prints how long it has been since the JVM started, and records it if metrics are enabled.
+     * @param histogram The histogram to record the time in
+     * @param event What has just happened
+     */
+    private static void recordSinceStartup(LatencyHistogram histogram, String event){
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if(Metrics.ENABLED){
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(uptime));
+        }
+        System.out.println(event + " " + uptime + " ms after startup");
+    }
+
+    /**
+     * Stops the pool's background thread and reports how well it kept up, and finishes writing the history.
+     */
+    @Override
+    public void stop(){
+        if(dictionaryReady.isDone() && !dictionaryReady.isCompletedExceptionally()){
+            boardPool.close();
+            System.out.println(boardPool);
+        }
+        history.close();
+        System.out.println(history);
+        System.out.print(Metrics.summary());
+    }
+
+    /**
+     * Creates a new stage with a new scene based on the Parent node passed from createContent. The time from the
+     * JVM starting to the window being shown is recorded.
      * @param primaryStage The one and only stage used in this application
      */
     @Override
@@ -61,18 +176,74 @@ public class GameCoordinator extends Application{
         Scene scene = new Scene(createGUI());
         primaryStage.setTitle("Boggle");
         primaryStage.setScene(scene);
+        primaryStage.setOnShown(event -> recordSinceStartup(FIRST_FRAME, "Window shown"));
         primaryStage.show();
     }
 
     /**
-     * Resets the score, clears the player's word list, sets the tray's letters, and sets up a timer to count down
-     * from GAME_TIME. When this timer is up, gameOver() is called.
+     * Starts a round on the next board in the pool. If the pool has run dry, the FX thread doesn't wait for it:
+     * the progress indicator is shown while another thread waits up to BOARD_WAIT_MILLIS, and the round starts
+     * when the board arrives. If none arrives in time, or the pool has stopped working, the player is told and
+     * the start game button is enabled again.
      */
     private void startNewGame(){
+        Solution ready = boardPool.poll();
+        if(ready != null){
+            beginRound(ready);
+            return;
+        }
+        showLoading(true);
+        CompletableFuture.supplyAsync(this::waitForBoard).whenCompleteAsync((board, error) -> {
+            showLoading(false);
+            if(board != null){
+                beginRound(board);
+                return;
+            }
+            statusLabel.setText(error != null ? "No boards can be made: " + error.getCause().getMessage()
+                    : "No board is ready yet, try again");
+            startNewGameButton.setDisable(false);
+        }, Platform::runLater);
+    }
+
+    /**
+     * @return The next board in the pool, or null if none is ready within BOARD_WAIT_MILLIS
+     */
+    private Solution waitForBoard(){
+        try{
+            return boardPool.take(BOARD_WAIT_MILLIS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * @param loading True to show the progress indicator, false to hide it
+     */
+    private void showLoading(boolean loading){
+        loadingIndicator.setVisible(loading);
+        loadingIndicator.setManaged(loading);
+    }
+
+    /**
+     * Resets the score, clears the player's word list, sets the tray's letters from a board from the pool, and
+     * sets up a timer to count down from GAME_TIME. When this timer is up, gameOver() is called. The time this
+     * holds up the FX thread is recorded.
+     * @param board The solved board to play
+     */
+    private void beginRound(Solution board){
+        long start = Metrics.start();
+        solution = board;
+        statusLabel.setText("");
+        roundInProgress = true;
+        roundStartMillis = System.currentTimeMillis();
         scoreThisRound = 0;
         scoreThisRoundLabel.setText("Score: " + scoreThisRound);
         playerWordList.clear();
-        tray.set();
+        playerWords.clear();
+        missedWordList.clear();
+        maxScoreLabel.setText("Max: ");
+        tray.set(solution.getBoard());
         tray.clearWordAttempt();
         if(timeline != null){
             timeline.stop();
@@ -83,12 +254,18 @@ public class GameCoordinator extends Application{
                 new KeyValue(timeSeconds, 0)));
         timeline.setOnFinished(event -> gameOver());
         timeline.playFromStart();
+        START_STALLS.recordSince(start);
     }
 
     /**
      * Generates a BorderLayout GUI, with the left panel being used to hold a player's list of words,
      * the text field for inputting words, buttons to start/end the game, score information, and the timer.
-     * The center panel holds the tray for the game.
+     * The center panel holds the tray for the game, and the right panel shows the words the player missed once
+     * the round is over. Until the dictionary is ready, the start game button is disabled and a progress
+     * indicator spins beside it, as it does while waiting for a board. If the dictionary can't be loaded, the
+     * indicator is hidden, the button stays disabled and the reason is shown in the status label. The tray, text
+     * field, buttons and status label are given ids, so they can be looked up in the scene (such as by
+     * GameHarness).
      * @return The root node for the scene
      */
     private Parent createGUI(){
@@ -107,16 +284,42 @@ public class GameCoordinator extends Application{
         TextField userInputField = createUserInputField();
         Button submitAllButton = createSubmitAllButton();
         Button addButton = createAddButton(userInputField);
+        tray.setId("tray");
+        userInputField.setId("wordInput");
+        startNewGameButton.setId("startNewGame");
+        submitAllButton.setId("submitAll");
+        addButton.setId("add");
         ListView<Text> playerWordsDisplay = new ListView<>(playerWordList);
 
-        HBox controlButtons = new HBox(5,addButton,submitAllButton,startNewGameButton);
+        loadingIndicator = new ProgressIndicator();
+        statusLabel = new Label();
+        statusLabel.setTextFill(Color.RED);
+        statusLabel.setId("status");
+        startNewGameButton.setDisable(true);
+        dictionaryReady.whenCompleteAsync((loaded, error) -> {
+            showLoading(false);
+            if(error != null){
+                statusLabel.setText("The dictionary couldn't be loaded: " + error.getMessage());
+                return;             //No game can be played, so the start game button stays disabled
+            }
+            startNewGameButton.setDisable(false);
+        }, Platform::runLater);
+
+        HBox controlButtons = new HBox(5,addButton,submitAllButton,startNewGameButton,loadingIndicator);
         HBox scoreLabels = new HBox (100,scoreThisRoundLabel,totalScoreLabel);
-        leftPanel.getChildren().addAll(scoreLabels,playerWordsDisplay,userInputField,controlButtons, timerLabel);
+        leftPanel.getChildren().addAll(scoreLabels,playerWordsDisplay,userInputField,controlButtons, timerLabel,
+                statusLabel);
+
+        maxScoreLabel = createMaxScoreLabel();
+        ListView<Text> missedWordsDisplay = new ListView<>(missedWordList);
+        VBox rightPanel = new VBox(5, maxScoreLabel, new Label("Missed words"), missedWordsDisplay);
 
         rootLayout.setCenter(centerPanel);
         rootLayout.setLeft(leftPanel);
+        rootLayout.setRight(rightPanel);
         BorderPane.setMargin(centerPanel,new Insets(20,20,20,20));
         BorderPane.setMargin(leftPanel,new Insets(20,20,20,20));
+        BorderPane.setMargin(rightPanel,new Insets(20,20,20,20));
 
         root.getChildren().add(rootLayout);
         return root;
@@ -129,8 +332,8 @@ public class GameCoordinator extends Application{
         Button startGameButton = new Button();
         startGameButton.setText("Start New Game");
         startGameButton.setOnAction((ActionEvent event) -> {
-            startNewGame();
             startGameButton.setDisable(true);
+            startNewGame();
         });
         return startGameButton;
     }
@@ -149,26 +352,60 @@ public class GameCoordinator extends Application{
     /**
      * @return A text field which submits words to the playerWordList upon pressing ENTER. Will only
      * submit a word if it is 3 or more characters long and not already on the list. Clears the text
-     * field if the submission is a success.
+     * field if the submission is a success. The text turns red as soon as it stops being the start of
+     * any word in the dictionary, or if typed while the dictionary is loading, once it has loaded.
      */
     private TextField createUserInputField(){
         TextField textField = new TextField();
         textField.setPromptText("Write a word, then press enter");
         textField.setOnKeyPressed( event -> {
-            String word = textField.getText();
-            if(event.getCode() == KeyCode.ENTER && word.length() > 2){
-                for (Text t : playerWordList) {
-                    if (t.getText().equals(word)) {
-                        return;
-                    }
-                }
-                playerWordList.add(new Text(word));
+            if(event.getCode() == KeyCode.ENTER && submitWord(textField.getText())){
                 textField.clear();
             }
         });
+        textField.textProperty().addListener((observable, oldText, newText) -> {
+            if(!dictionaryReady.isDone() || dictionaryReady.isCompletedExceptionally()){
+                return;             //Checked once the dictionary is ready, or never if it failed to load
+            }
+            boolean wasDead = prefixNode == -1;
+            updatePrefixNode(oldText, newText);
+            showPrefix(textField, wasDead);
+        });
+        dictionaryReady.thenRunAsync(() -> {
+            boolean wasDead = prefixNode == -1;
+            prefixNode = dictionary.find(textField.getText());
+            showPrefix(textField, wasDead);
+        }, Platform::runLater);
         return textField;
     }
 
+    /**
+     * Colors the text in the input field red if it isn't the start of any word, if that has changed.
+     * @param textField The input field
+     * @param wasDead True if the text was colored red before
+     */
+    private void showPrefix(TextField textField, boolean wasDead){
+        if(wasDead != (prefixNode == -1)){
+            textField.setStyle(prefixNode == -1 ? "-fx-text-fill: red;" : "");
+        }
+    }
+
+    /**
+     * Keeps prefixNode at the dictionary node for the text in the input field. Typing a letter on the end
+     * only takes one step down the trie, anything else looks the whole text up again.
+     * @param oldText The text before the change
+     * @param newText The text after the change
+     */
+    private void updatePrefixNode(String oldText, String newText){
+        if(newText.length() == oldText.length()+1 && newText.startsWith(oldText)){
+            if(prefixNode != -1){
+                prefixNode = dictionary.child(prefixNode, newText.charAt(oldText.length()));
+            }
+        } else {
+            prefixNode = dictionary.find(newText);
+        }
+    }
+
     /**
      * @return A button which submits the player's word list to be checked (in other words,
      * ends this round of Boggle)
@@ -189,16 +426,11 @@ public class GameCoordinator extends Application{
         addButton.setOnAction(event -> {
             String word = tray.getWordAttemptAsString();
             if(word.length() > 2){
-                if(!isInList(word)){
-                    playerWordList.add(new Text(word));
+                if(submitWord(word)){
                     tray.clearWordAttempt();
                 }
-            } else {
-                word = userInputField.getText();
-                if (word.length() > 2 && !isInList(word)) {
-                    playerWordList.add(new Text(word));
-                    userInputField.clear();
-                }
+            } else if(submitWord(userInputField.getText())){
+                userInputField.clear();
             }
         });
         return addButton;
@@ -224,48 +456,99 @@ public class GameCoordinator extends Application{
         return totalScoreLabel;
     }
 
+    /**
+     * @return A label which displays the highest score possible on the tray in gray, filled in when a round ends
+     */
+    private Label createMaxScoreLabel(){
+        Label maxScoreLabel = new Label("Max: ");
+        maxScoreLabel.setFont(Font.font(20));
+        maxScoreLabel.setTextFill(Color.GRAY);
+        return maxScoreLabel;
+    }
+
+    /**
+     * Adds a word to the player's list if a round is in progress, the word is 3 or more characters long, and it
+     * isn't already on the list. The word is checked straight away: valid words are colored blue and added to
+     * the score for this round, invalid ones are colored red.
+     * @param word A string the player submitted
+     * @return True if the word was added to the list
+     */
+    private boolean submitWord(String word){
+        if(!roundInProgress || word.length() <= 2 || isInList(word)){
+            return false;
+        }
+        long start = Metrics.start();
+        Text t = new Text(word);
+        boolean valid = isValid(word);
+        VALIDATIONS.recordSince(start);
+        playerWords.put(word, valid);
+        if(valid){
+            t.setFill(Color.BLUE);
+            scoreThisRound += Solution.score(word);
+            scoreThisRoundLabel.setText("Score: " + scoreThisRound);
+        } else {
+            t.setFill(Color.RED);
+        }
+        playerWordList.add(t);
+        return true;
+    }
+
     /**
      * @param word A string to check for validity on the tray and in the dictionary
-     * @return True if this string is both on the tray and in the dictionary and 3 or more characters
+     * @return True if this string is both on the tray and in the dictionary and 3 or more characters. Every
+     * such word is already in the tray's solution, so this is a single lookup.
      */
     private boolean isValid(String word){
-        return dictionary.contains(word) && tray.contains(word) && word.length()>2;
+        return solution.contains(word);
     }
 
     /**
-     * Checks if the string is in the player's list
+     * Checks if the string is in the player's list. The list's words are kept in a hash map alongside the
+     * displayed list, so this doesn't depend on how long the list is.
      * @param word A string
      * @return True if it's in the player's list of guessed words
      */
     private boolean isInList(String word){
-        for (Text t : playerWordList) {
-            if (t.getText().equals(word)) {
-                return true;
-            }
-        }
-        return false;
+        return playerWords.containsKey(word);
     }
 
     /**
-     * The procedure for ending a round fo Boggle. Stops the timer, re-enables the start game button,
-     * and goes through the player's list of words, checking them for validity and adding to the score
-     * if they are valid.
+     * The procedure for ending a round fo Boggle. Stops the timer, re-enables the start game button, and
+     * adds this round's score to the total. Every word was already checked as it was added, so all that is
+     * left is to show the words the player missed and the maximum possible score, and save the round to the
+     * history. The time this holds up the FX thread is recorded.
      */
     private void gameOver(){
+        if(!roundInProgress){
+            return;
+        }
+        long start = Metrics.start();
+        roundInProgress = false;
         startNewGameButton.setDisable(false);
         timeline.stop();
-        for(Text t : playerWordList){
-            String word = t.getText();
-            if(isValid(word)){
-                t.setFill(Color.BLUE);
-                scoreThisRound += word.length()-2;
-                totalScore += word.length()-2;
-            } else {
-                t.setFill(Color.RED);
+        totalScore += scoreThisRound;
+        totalScoreLabel.setText("Total: " + totalScore);
+        showSolution(solution);
+        history.record(new GameHistory.Round(roundStartMillis, System.currentTimeMillis(), solution.getBoard(),
+                scoreThisRound, solution.getMaxScore(), playerWords));
+        GAME_OVER_STALLS.recordSince(start);
+    }
+
+    /**
+     * Fills the missed word list with every word on the tray that isn't in the player's list, and shows the
+     * maximum score.
+     * @param solution The solution to the current tray
+     */
+    private void showSolution(Solution solution){
+        missedWordList.clear();
+        for(String word : solution.getWords()){
+            if(!isInList(word)){
+                Text t = new Text(word);
+                t.setFill(Color.GRAY);
+                missedWordList.add(t);
             }
         }
-        scoreThisRoundLabel.setText("Score: " + scoreThisRound);
-        totalScoreLabel.setText("Total: " + totalScore);
+        maxScoreLabel.setText("Max: " + solution.getMaxScore());
     }
 
     /**
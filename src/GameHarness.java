@@ -0,0 +1,214 @@
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Author: Luke Gehman
+ * Plays the real game with scripted players and no display, to catch stalls on the FX thread which benchmarks of
+ * the parts alone would miss. JavaFX is started with Monocle's headless platform (its jar must be on the class
+ * path, such as openjfx-monocle), the GameCoordinator's window is shown on a Stage that is never drawn, and each
+ * round is played through the same controls a player uses: the Start New Game button, typing each word into the
+ * text field one letter at a time and pressing enter, and the Submit All button. Every action is posted to the
+ * FX thread like an input event, and the time from posting it to it finishing, including any wait behind
+ * layout, CSS and other work queued ahead of it, is recorded for each phase. Starting a round counts until the
+ * new board is on the tray, since it is handed over later if the pool has run dry.
+ *
+ * The pool's boards and the scripted words both come from the seed, so runs can be compared across commits. The
+ * words are every word on the board, in a random order, with every fourth one spelled backwards so it is usually
+ * wrong, repeated as needed to make up the number of words per round (so later repeats are duplicates). Rounds
+ * are saved to a history in a temporary directory, which is deleted at the end, unless the "boggle.history"
+ * system property is set.
+ *
+ * Usage: java GameHarness [rounds] [words per round] [seed]
+ * 50 rounds of 100 words with seed 20180227 by default.
+ */
+public class GameHarness {
+
+    private static final LatencyHistogram STARTS = new LatencyHistogram("harness.startNewGame");
+    private static final LatencyHistogram WORDS = new LatencyHistogram("harness.word");
+    private static final LatencyHistogram GAME_OVERS = new LatencyHistogram("harness.gameOver");
+    private static final long TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int wordsPerRound = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 20180227;
+
+        setDefault("glass.platform", "Monocle");
+        setDefault("monocle.platform", "Headless");
+        setDefault("prism.order", "sw");
+        setDefault("boggle.pool.seed", Long.toString(seed));
+        Path historyDirectory = null;
+        if(System.getProperty("boggle.history") == null){
+            historyDirectory = Files.createTempDirectory("boggle-harness");
+            System.setProperty("boggle.history", historyDirectory.resolve("history.log").toString());
+        }
+
+        Platform.startup(() -> {});
+        Platform.setImplicitExit(false);
+        long start = System.nanoTime();
+        GameCoordinator game = onFxThread(GameCoordinator::new);     //As Application.launch() does
+        game.init();
+        Scene scene = onFxThread(() -> {
+            Stage stage = new Stage();
+            game.start(stage);
+            return stage.getScene();
+        });
+        System.out.printf("Started headless in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+        Tray tray = (Tray) scene.lookup("#tray");
+        TextField wordInput = (TextField) scene.lookup("#wordInput");
+        Button startNewGame = (Button) scene.lookup("#startNewGame");
+        Button submitAll = (Button) scene.lookup("#submitAll");
+        Label status = (Label) scene.lookup("#status");
+        while(onFxThread(startNewGame::isDisabled)){         //Until the dictionary has loaded
+            String failure = onFxThread(status::getText);
+            if(!failure.isEmpty()){
+                throw new ExecutionException(new IllegalStateException(failure));
+            }
+            Thread.sleep(10);
+        }
+        System.out.printf("Ready to play in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        Solver solver = new Solver(Dictionaries.get());
+        Random random = new Random(seed);
+        for(int round=0;round<rounds;round++){
+            Board previous = onFxThread(tray::getBoard);
+            long posted = System.nanoTime();
+            onFxThread(() -> {
+                startNewGame.fire();
+                return null;
+            });
+            Board board;
+            while((board = onFxThread(tray::getBoard)) == previous){     //The board may come from another thread
+                Thread.sleep(1);
+            }
+            STARTS.record(System.nanoTime() - posted);
+            for(String word : script(solver.solve(board), wordsPerRound, random)){
+                time(WORDS, () -> type(wordInput, word));
+            }
+            time(GAME_OVERS, submitAll::fire);
+        }
+
+        onFxThread(() -> {
+            game.stop();
+            return null;
+        });
+        Platform.exit();
+        if(historyDirectory != null){
+            try(DirectoryStream<Path> files = Files.newDirectoryStream(historyDirectory)){
+                for(Path file : files){
+                    Files.delete(file);
+                }
+            }
+            Files.delete(historyDirectory);
+        }
+        System.out.printf("%d rounds of %d words, seed %d%n", rounds, wordsPerRound, seed);
+        for(LatencyHistogram phase : new LatencyHistogram[]{STARTS, WORDS, GAME_OVERS}){
+            System.out.printf("%-22s %7d calls: p50 %.0fus, p90 %.0fus, p99 %.0fus, p99.9 %.0fus, max %.0fus%n",
+                    phase.getName(), phase.getCount(), phase.getMedianMicros(), phase.getPercentileMicros(90),
+                    phase.get99thPercentileMicros(), phase.getPercentileMicros(99.9), phase.getMaxMicros());
+        }
+    }
+
+    /**
+     * @param key A system property
+     * @param value The value to give it, unless it was set on the command line
+     */
+    private static void setDefault(String key, String value){
+        if(System.getProperty(key) == null){
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Makes up the words a scripted player submits on a board.
+     * @param solution The board's solution
+     * @param count The number of words to submit
+     * @param random The source of random numbers
+     * @return The words to submit, in order
+     */
+    private static List<String> script(Solution solution, int count, Random random){
+        List<String> found = new ArrayList<>(solution.getWords());
+        Collections.shuffle(found, random);
+        for(int i=3;i<found.size();i+=4){
+            found.set(i, new StringBuilder(found.get(i)).reverse().toString());
+        }
+        List<String> words = new ArrayList<>(count);
+        for(int i=0;i<count && !found.isEmpty();i++){
+            words.add(found.get(i % found.size()));
+        }
+        return words;
+    }
+
+    /**
+     * Types a word into the text field a letter at a time, then presses enter.
+     * @param wordInput The game's text field
+     * @param word The word to type
+     */
+    private static void type(TextField wordInput, String word){
+        wordInput.clear();
+        for(int i=0;i<word.length();i++){
+            wordInput.appendText(word.substring(i, i+1));
+        }
+        wordInput.fireEvent(new KeyEvent(KeyEvent.KEY_PRESSED, "", "", KeyCode.ENTER,
+                false, false, false, false));
+    }
+
+    /**
+     * Runs an action on the FX thread, waits for it to finish, and records how long that took from posting it.
+     * @param phase The histogram to record the time in
+     * @param action The action
+     * @throws InterruptedException If interrupted while waiting
+     * @throws ExecutionException If the action threw an exception
+     */
+    private static void time(LatencyHistogram phase, Runnable action)
+            throws InterruptedException, ExecutionException {
+        long posted = System.nanoTime();
+        onFxThread(() -> {
+            action.run();
+            return null;
+        });
+        phase.record(System.nanoTime() - posted);
+    }
+
+    /**
+     * @param task Something to work out on the FX thread
+     * @return The result, once the FX thread has worked it out
+     * @throws InterruptedException If interrupted while waiting
+     * @throws ExecutionException If the task threw an exception
+     */
+    private static <T> T onFxThread(Supplier<T> task) throws InterruptedException, ExecutionException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try{
+                result.complete(task.get());
+            } catch (RuntimeException e){
+                result.completeExceptionally(e);
+            }
+        });
+        try{
+            return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e){
+            throw new ExecutionException("The FX thread didn't answer in " + TIMEOUT_SECONDS + " seconds", e);
+        }
+    }
+}
@@ -0,0 +1,589 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Author: Luke Gehman
+ * Keeps every round ever played in an append-only log file: when it started and ended, the board, each word the
+ * player submitted and whether it was valid, the score and the maximum score. Each round is one record, written
+ * through a FileChannel on a background thread, and the file is forced to disk after every few rounds, or at most
+ * ten seconds after a round is written if no more come, rather than after each one. A record that was only half written when the program stopped is cut off the next time the log
+ * is opened.
+ *
+ * Lifetime statistics, and how often each word has been found or rejected, are kept in memory as rounds are written.
+ * They are saved in a small summary file next to the log when it is closed, along with how much of the log they
+ * cover, so opening the log only has to read the summary and scan (memory-mapped) the rounds added since. Queries
+ * wait for the log to finish opening.
+ */
+public class GameHistory {
+
+    static final int MAGIC = 0x4247484C;           //"BGHL"
+    static final int SUMMARY_MAGIC = 0x42474853;   //"BGHS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    private static final LatencyHistogram OPENS = Metrics.histogram("history.open");
+    private final int SYNC_ROUNDS = 8;
+    private final long SYNC_MILLIS = 10_000;
+
+    private Path log;
+    private Path summary;
+    private FileChannel channel;
+    private ScheduledThreadPoolExecutor writer;
+    private int unsynced = 0;
+    private boolean syncScheduled = false;
+    private long lastSync = System.currentTimeMillis();
+    private boolean opened = false;
+
+    private long covered = HEADER_SIZE;           //How far into the log the statistics go
+    private int rounds = 0;
+    private long totalScore = 0;
+    private long totalMaxScore = 0;
+    private int bestScore = 0;
+    private long wordsSubmitted = 0;
+    private long wordsValid = 0;
+    private long firstPlayed = 0;
+    private long lastPlayed = 0;
+    private Map<String,int[]> wordCounts = new HashMap<>();      //For each word, times found and times rejected
+
+    /**
+     * One finished round.
+     */
+    public static class Round {
+        private long startMillis;
+        private long endMillis;
+        private Board board;
+        private int score;
+        private int maxScore;
+        private Map<String,Boolean> words;
+
+        /**
+         * @param startMillis When the round started
+         * @param endMillis When the round ended
+         * @param board The board played
+         * @param score The player's score
+         * @param maxScore The highest score possible on the board
+         * @param words Each word the player submitted, in order, and whether it was valid
+         */
+        public Round(long startMillis, long endMillis, Board board, int score, int maxScore,
+                     Map<String,Boolean> words){
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.board = board;
+            this.score = score;
+            this.maxScore = maxScore;
+            this.words = new LinkedHashMap<>(words);
+        }
+    }
+
+    /**
+     * Opens a history log on a background thread, creating it if it doesn't exist.
+     * @param log The log file, whose summary is kept alongside it with ".summary" added to the name
+     */
+    public GameHistory(Path log){
+        this.log = log;
+        summary = log.resolveSibling(log.getFileName() + ".summary");
+        writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "GameHistory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);   //close() forces the log itself
+        writer.execute(this::open);
+    }
+
+    /**
+     * @return The log file in the "boggle.history" system property, or otherwise history.log in a .boggle folder
+     * in the user's home folder
+     */
+    public static Path defaultPath(){
+        String property = System.getProperty("boggle.history");
+        if(property != null){
+            return Paths.get(property);
+        }
+        return Paths.get(System.getProperty("user.home"), ".boggle", "history.log");
+    }
+
+    /**
+     * Opens the log, reads the summary, and catches the statistics up with any rounds added after it was saved.
+     * If the log can't be opened, rounds are still counted but not saved.
+     */
+    private synchronized void open(){
+        long start = Metrics.start();
+        try{
+            if(log.getParent() != null){
+                Files.createDirectories(log.getParent());
+            }
+            channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if(channel.size() < HEADER_SIZE || !readHeader()){
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            if(!readSummary() || covered > channel.size()){
+                clearStatistics();
+            }
+            long end = scan(covered);
+            if(end < channel.size()){
+                channel.truncate(end);      //A round that was only half written
+            }
+            channel.position(end);
+        } catch (IOException | RuntimeException e){
+            e.printStackTrace();
+            if(channel != null){
+                try{
+                    channel.close();
+                } catch (IOException closing){
+                    closing.printStackTrace();
+                }
+            }
+            channel = null;
+        } finally {
+            opened = true;      //Even if opening failed, so queries and records don't wait forever
+            notifyAll();
+        }
+        OPENS.recordSince(start);
+    }
+
+    /**
+     * Waits for the log to finish opening, so nothing is counted before the saved statistics are loaded. Must be
+     * called while holding this object's lock.
+     */
+    private void awaitOpen(){
+        while(!opened){
+            try{
+                wait();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return True if the log starts with the right header
+     * @throws IOException If the log can't be read
+     */
+    private boolean readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+    }
+
+    /**
+     * Adds up the rounds in the log from a particular place to the end, reading the file through a memory map.
+     * The first record that is cut short, fails its checksum or can't be read is taken to be a round that was only
+     * half written, and it and everything after it are left out.
+     * @param from Where the first record starts
+     * @return Where the last whole record ends
+     * @throws IOException If the log can't be read
+     */
+    private long scan(long from) throws IOException {
+        long size = channel.size();
+        if(from >= size){
+            return from;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, size - from);
+        CRC32 crc = new CRC32();
+        while(buffer.remaining() >= 8){
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if(length < 0 || length > buffer.remaining() - 4){
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer body = buffer.slice();
+            body.limit(length);
+            crc.reset();
+            crc.update(body.duplicate());
+            buffer.position(start + 4 + length);
+            if((int) crc.getValue() != buffer.getInt()){
+                buffer.position(start);
+                break;
+            }
+            try{
+                count(body);
+            } catch (RuntimeException e){       //Nothing is counted until the whole record has been read
+                buffer.position(start);
+                break;
+            }
+        }
+        covered = from + buffer.position();
+        return covered;
+    }
+
+    /**
+     * Adds one round to the statistics.
+     * @param body A record's contents, laid out as written by encode()
+     */
+    private void count(ByteBuffer body){
+        long startMillis = body.getLong();
+        long endMillis = body.getLong();
+        int tiles = body.getShort() * body.getShort();
+        body.position(body.position() + 2*tiles);
+        int score = body.getInt();
+        int maxScore = body.getInt();
+        int words = body.getInt();
+        Map<String,Boolean> submitted = new LinkedHashMap<>();
+        for(int i=0;i<words;i++){
+            boolean valid = body.get() != 0;
+            byte[] bytes = new byte[body.getShort()];
+            body.get(bytes);
+            submitted.put(new String(bytes, StandardCharsets.UTF_8), valid);
+        }
+        count(startMillis, endMillis, score, maxScore, submitted);
+    }
+
+    /**
+     * Adds one round to the statistics.
+     * @param startMillis When the round started
+     * @param endMillis When the round ended
+     * @param score The player's score
+     * @param maxScore The highest score possible on the board
+     * @param words Each word the player submitted and whether it was valid
+     */
+    private void count(long startMillis, long endMillis, int score, int maxScore, Map<String,Boolean> words){
+        rounds++;
+        totalScore += score;
+        totalMaxScore += maxScore;
+        bestScore = Math.max(bestScore, score);
+        if(firstPlayed == 0){
+            firstPlayed = startMillis;
+        }
+        lastPlayed = Math.max(lastPlayed, endMillis);
+        for(Map.Entry<String,Boolean> word : words.entrySet()){
+            wordsSubmitted++;
+            int[] counts = wordCounts.computeIfAbsent(word.getKey(), key -> new int[2]);
+            if(word.getValue()){
+                wordsValid++;
+                counts[0]++;
+            } else {
+                counts[1]++;
+            }
+        }
+    }
+
+    /**
+     * Adds a finished round to the log on the background thread, and to the statistics once it has been written,
+     * so the statistics never count a round the log doesn't have.
+     * @param round The round
+     */
+    public void record(Round round){
+        ByteBuffer record = encode(round);
+        writer.execute(() -> append(round, record));
+    }
+
+    /**
+     * Lays a round out as a record: its length, its contents and a checksum of the contents.
+     * @param round The round
+     * @return The record, ready to write
+     */
+    private static ByteBuffer encode(Round round){
+        List<byte[]> words = new ArrayList<>(round.words.size());
+        int length = 8 + 8 + 2 + 2 + 2*round.board.size() + 4 + 4 + 4;
+        for(String word : round.words.keySet()){
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            words.add(bytes);
+            length += 1 + 2 + bytes.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + length + 4);
+        record.putInt(length);
+        record.putLong(round.startMillis).putLong(round.endMillis);
+        record.putShort((short) round.board.getHeight()).putShort((short) round.board.getWidth());
+        for(int i=0;i<round.board.size();i++){
+            record.putChar(round.board.getLetter(i));
+        }
+        record.putInt(round.score).putInt(round.maxScore).putInt(words.size());
+        int i = 0;
+        for(boolean valid : round.words.values()){
+            byte[] bytes = words.get(i++);
+            record.put((byte) (valid ? 1 : 0)).putShort((short) bytes.length).put(bytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Writes a record to the end of the log, forcing the log to disk if enough rounds or time have gone by since
+     * it last was, or otherwise making sure it will be once enough time has, and then counts the round. If the record can't be written, whatever part of it was is cut off
+     * again and the round isn't counted. If the log couldn't be opened at all, the round is only counted.
+     * @param round The round
+     * @param record The round laid out as a record
+     */
+    private void append(Round round, ByteBuffer record){
+        if(channel == null){
+            synchronized(this){
+                count(round.startMillis, round.endMillis, round.score, round.maxScore, round.words);
+            }
+            return;
+        }
+        long end = -1;
+        try{
+            end = channel.position();
+            while(record.hasRemaining()){
+                channel.write(record);
+            }
+            long now = System.currentTimeMillis();
+            if(++unsynced >= SYNC_ROUNDS || now - lastSync >= SYNC_MILLIS){
+                sync();
+            } else if(!syncScheduled){
+                syncScheduled = true;
+                writer.schedule(this::syncLate, lastSync + SYNC_MILLIS - now, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e){
+            e.printStackTrace();
+            truncate(end);
+            return;
+        }
+        synchronized(this){
+            count(round.startMillis, round.endMillis, round.score, round.maxScore, round.words);
+            covered = end + record.limit();
+        }
+    }
+
+    /**
+     * Cuts a failed write back off the end of the log, so the next record starts where this one should have.
+     * @param end Where the log ended before the write, or -1 if that couldn't be found
+     */
+    private void truncate(long end){
+        if(end == -1){
+            return;
+        }
+        try{
+            channel.truncate(end);
+            channel.position(end);
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces the log to disk if rounds have been written since it last was, so a round is never left unforced
+     * for much longer than SYNC_MILLIS just because no more rounds come after it. Runs on the writer thread.
+     */
+    private void syncLate(){
+        syncScheduled = false;
+        if(channel == null || unsynced == 0){
+            return;
+        }
+        try{
+            sync();
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces everything written to the log onto the disk.
+     * @throws IOException If the log can't be written
+     */
+    private void sync() throws IOException {
+        channel.force(false);
+        unsynced = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Finishes writing the log, forces it to disk and saves the summary.
+     */
+    public void close(){
+        writer.execute(() -> {
+            if(channel == null){
+                return;
+            }
+            try{
+                sync();
+                channel.close();
+                writeSummary();
+            } catch (IOException e){
+                e.printStackTrace();
+            }
+        });
+        writer.shutdown();
+        try{
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Saves the statistics and how much of the log they cover. The summary is written to a temporary file first,
+     * so a crash part way through leaves the old one in place.
+     * @throws IOException If the summary can't be written
+     */
+    private synchronized void writeSummary() throws IOException {
+        Path temporary = summary.resolveSibling(summary.getFileName() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))){
+            out.writeInt(SUMMARY_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(covered);
+            out.writeInt(rounds);
+            out.writeLong(totalScore);
+            out.writeLong(totalMaxScore);
+            out.writeInt(bestScore);
+            out.writeLong(wordsSubmitted);
+            out.writeLong(wordsValid);
+            out.writeLong(firstPlayed);
+            out.writeLong(lastPlayed);
+            out.writeInt(wordCounts.size());
+            for(Map.Entry<String,int[]> word : wordCounts.entrySet()){
+                out.writeUTF(word.getKey());
+                out.writeInt(word.getValue()[0]);
+                out.writeInt(word.getValue()[1]);
+            }
+        }
+        Files.move(temporary, summary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the statistics saved in the summary.
+     * @return True if there was a summary and it could be read
+     */
+    private boolean readSummary(){
+        if(!Files.isRegularFile(summary)){
+            return false;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(summary)))){
+            if(in.readInt() != SUMMARY_MAGIC || in.readInt() != VERSION){
+                return false;
+            }
+            covered = in.readLong();
+            rounds = in.readInt();
+            totalScore = in.readLong();
+            totalMaxScore = in.readLong();
+            bestScore = in.readInt();
+            wordsSubmitted = in.readLong();
+            wordsValid = in.readLong();
+            firstPlayed = in.readLong();
+            lastPlayed = in.readLong();
+            int words = in.readInt();
+            wordCounts = new HashMap<>();
+            for(int i=0;i<words;i++){
+                wordCounts.put(in.readUTF(), new int[]{in.readInt(), in.readInt()});
+            }
+            return covered >= HEADER_SIZE && words >= 0;
+        } catch (IOException e){
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Forgets every statistic, so they can be worked out again from the start of the log.
+     */
+    private void clearStatistics(){
+        covered = HEADER_SIZE;
+        rounds = 0;
+        totalScore = 0;
+        totalMaxScore = 0;
+        bestScore = 0;
+        wordsSubmitted = 0;
+        wordsValid = 0;
+        firstPlayed = 0;
+        lastPlayed = 0;
+        wordCounts = new HashMap<>();
+    }
+
+    /**
+     * @return The number of rounds played
+     */
+    public synchronized int getRoundCount(){
+        awaitOpen();
+        return rounds;
+    }
+
+    /**
+     * @return The sum of the scores of every round played
+     */
+    public synchronized long getTotalScore(){
+        awaitOpen();
+        return totalScore;
+    }
+
+    /**
+     * @return The highest score in any round
+     */
+    public synchronized int getBestScore(){
+        awaitOpen();
+        return bestScore;
+    }
+
+    /**
+     * @return The total score as a fraction of the total of the maximum scores, or 0 if no rounds have been played
+     */
+    public synchronized double getScoreFraction(){
+        awaitOpen();
+        return totalMaxScore == 0 ? 0 : (double) totalScore / totalMaxScore;
+    }
+
+    /**
+     * @param word A word
+     * @return The number of rounds in which the word was submitted and was valid
+     */
+    public synchronized int getTimesFound(String word){
+        awaitOpen();
+        int[] counts = wordCounts.get(word);
+        return counts == null ? 0 : counts[0];
+    }
+
+    /**
+     * @param word A word
+     * @return The number of rounds in which the word was submitted and wasn't valid
+     */
+    public synchronized int getTimesRejected(String word){
+        awaitOpen();
+        int[] counts = wordCounts.get(word);
+        return counts == null ? 0 : counts[1];
+    }
+
+    /**
+     * @param count The number of words wanted
+     * @return The words found most often, most often first
+     */
+    public synchronized List<String> getMostFoundWords(int count){
+        awaitOpen();
+        List<String> words = new ArrayList<>();
+        for(Map.Entry<String,int[]> word : wordCounts.entrySet()){
+            if(word.getValue()[0] > 0){
+                words.add(word.getKey());
+            }
+        }
+        words.sort((a, b) -> wordCounts.get(b)[0] - wordCounts.get(a)[0]);
+        return Collections.unmodifiableList(words.subList(0, Math.min(count, words.size())));
+    }
+
+    @Override
+    public synchronized String toString(){
+        awaitOpen();
+        return String.format("GameHistory: %d rounds, %d points (%.1f%% of max), best %d, %d of %d words valid, "
+                + "%d distinct words", rounds, totalScore, 100 * getScoreFraction(), bestScore, wordsValid,
+                wordsSubmitted, wordCounts.size());
+    }
+}
@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Author: Luke Gehman
+ * One room of a GameServer: a group of players who play rounds on the same board at the same time. Each round's
+ * board is generated from a seed, so every player (and anyone replaying the round) gets the same letters. Words
+ * are checked and scored the same way GameCoordinator checks them, against the board's solution. The room doesn't
+ * know about sockets: each player is given a way to send it lines of the GameServer protocol, which must not
+ * wait (GameServer queues them), since lines are sent while the room is locked. All of a room's methods may be
+ * called from any thread.
+ */
+public class GameRoom {
+    private static final LatencyHistogram VALIDATIONS = Metrics.histogram("server.validate");
+
+    private String name;
+    private Dictionary dictionary;
+    private SolutionCache cache;
+    private BoardGenerator generator;
+    private int gameTime;
+    private Set<Player> players = new LinkedHashSet<>();
+    private Solution solution;
+    private long seed;
+    private boolean roundInProgress = false;
+    private int secondsLeft;
+
+    /**
+     * A player in a room, with the words they have submitted this round and their scores.
+     */
+    public static class Player {
+        private String name;
+        private Consumer<String> out;
+        private Map<String,Boolean> words = new HashMap<>();      //Each word submitted, and whether it is valid
+        private int scoreThisRound = 0;
+        private int totalScore = 0;
+
+        /**
+         * @param name The name shown to the other players
+         * @param out Sends one line of the protocol to the player, without waiting
+         */
+        public Player(String name, Consumer<String> out){
+            this.name = name;
+            this.out = out;
+        }
+
+        /**
+         * @return The name shown to the other players
+         */
+        public String getName(){
+            return name;
+        }
+
+        /**
+         * @return The player's score over every round they have finished
+         */
+        public int getTotalScore(){
+            return totalScore;
+        }
+    }
+
+    /**
+     * @param name The room's name
+     * @param dictionary The dictionary words are checked against
+     * @param size The number of rows and columns on the room's boards
+     * @param gameTime The length of a round, in seconds
+     * @param cache Where solved boards are kept, so replayed seeds aren't solved again
+     */
+    public GameRoom(String name, Dictionary dictionary, int size, int gameTime, SolutionCache cache){
+        this.name = name;
+        this.dictionary = dictionary;
+        this.gameTime = gameTime;
+        this.cache = cache;
+        generator = new BoardGenerator(size, size, dictionary.getAlphabet());
+    }
+
+    /**
+     * Adds a player to the room. If a round is in progress they are sent its board and the time left, and can
+     * join in straight away.
+     * @param player The player joining
+     */
+    public synchronized void join(Player player){
+        players.add(player);
+        broadcast("JOINED " + name + " " + player.name + " " + players.size());
+        if(roundInProgress){
+            sendBoard(player);
+            player.out.accept("TIME " + secondsLeft);
+        }
+    }
+
+    /**
+     * Takes a player out of the room.
+     * @param player The player leaving
+     */
+    public synchronized void leave(Player player){
+        if(players.remove(player)){
+            broadcast("LEFT " + name + " " + player.name + " " + players.size());
+        }
+    }
+
+    /**
+     * Starts a round on the board for a particular seed, unless one is already in progress. Every player's words
+     * and score for the round are cleared, and everyone is sent the board and the time.
+     * @param seed The seed to generate the board from
+     * @return True if a round was started
+     */
+    public synchronized boolean start(long seed){
+        if(roundInProgress){
+            return false;
+        }
+        this.seed = seed;
+        solution = cache.solve(generator.generate(seed), new Solver(dictionary));
+        for(Player player : players){
+            player.words.clear();
+            player.scoreThisRound = 0;
+        }
+        roundInProgress = true;
+        secondsLeft = gameTime;
+        for(Player player : players){
+            sendBoard(player);
+        }
+        broadcast("TIME " + secondsLeft);
+        return true;
+    }
+
+    /**
+     * @param player The player to send the current board to
+     */
+    private void sendBoard(Player player){
+        Board board = solution.getBoard();
+        player.out.accept("BOARD " + seed + " " + board.getHeight() + " " + board.getWidth() + " "
+                + new String(board.getLetters()));
+    }
+
+    /**
+     * Checks a word a player submitted, in the same way as GameCoordinator: it must be submitted during a
+     * round, be 3 or more letters long, not already be on the player's list, and be in the board's solution.
+     * @param player The player submitting the word
+     * @param word The word
+     * @return The reply to send the player: "OK word points score" if the word scored, or "BAD word reason"
+     */
+    public synchronized String submit(Player player, String word){
+        if(!roundInProgress){
+            return "BAD " + word + " noround";
+        }
+        if(word.length() < Solution.MIN_WORD_LENGTH){
+            return "BAD " + word + " short";
+        }
+        if(player.words.containsKey(word)){
+            return "BAD " + word + " duplicate";
+        }
+        long start = Metrics.start();
+        boolean valid = solution.contains(word);
+        VALIDATIONS.recordSince(start);
+        player.words.put(word, valid);
+        if(!valid){
+            return "BAD " + word + " invalid";
+        }
+        player.scoreThisRound += Solution.score(word);
+        return "OK " + word + " " + Solution.score(word) + " " + player.scoreThisRound;
+    }
+
+    /**
+     * Counts a second off the round's timer and tells everyone the time left, ending the round when it runs out.
+     */
+    public synchronized void tick(){
+        if(!roundInProgress){
+            return;
+        }
+        secondsLeft--;
+        if(secondsLeft <= 0){
+            gameOver();
+        } else {
+            broadcast("TIME " + secondsLeft);
+        }
+    }
+
+    /**
+     * Ends the round, like GameCoordinator.gameOver(): adds each player's score for the round to their total,
+     * then sends everyone the maximum score and the scores of every player, highest first, and sends each player
+     * the number of words they missed.
+     */
+    public synchronized void gameOver(){
+        if(!roundInProgress){
+            return;
+        }
+        roundInProgress = false;
+        List<Player> ranking = new ArrayList<>(players);
+        ranking.sort((a, b) -> b.scoreThisRound - a.scoreThisRound);
+        for(Player player : players){
+            player.totalScore += player.scoreThisRound;
+        }
+        broadcast("END " + solution.getMaxScore() + " " + solution.getWordCount());
+        for(Player player : ranking){
+            broadcast("SCORE " + player.name + " " + player.scoreThisRound + " " + player.totalScore);
+        }
+        for(Player player : players){
+            int found = 0;
+            for(boolean valid : player.words.values()){
+                if(valid){
+                    found++;
+                }
+            }
+            player.out.accept("MISSED " + (solution.getWordCount() - found));
+        }
+    }
+
+    /**
+     * @param line A line of the protocol to send to every player in the room
+     */
+    private void broadcast(String line){
+        for(Player player : players){
+            player.out.accept(line);
+        }
+    }
+
+    /**
+     * @return The room's name
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * @return True if a round is being played
+     */
+    public synchronized boolean isRoundInProgress(){
+        return roundInProgress;
+    }
+
+    /**
+     * @return True if no one is in the room
+     */
+    public synchronized boolean isEmpty(){
+        return players.isEmpty();
+    }
+
+    /**
+     * @return The number of players in the room
+     */
+    public synchronized int getPlayerCount(){
+        return players.size();
+    }
+}
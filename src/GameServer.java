@@ -0,0 +1,308 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Author: Luke Gehman
+ * Hosts multiplayer Boggle over plain sockets, for running training sessions with many players at once. Players
+ * join named rooms, and everyone in a room plays the same seeded board against the same timer. Each connection is
+ * served by two threads of its own, one reading commands and one writing replies: virtual threads on Java 21 and
+ * later, otherwise ordinary ones. Lines for a client are put in its outbox, a bounded queue which its writer
+ * empties, so rooms and the timer never wait on a socket. A client which stops reading until its outbox overflows
+ * is disconnected.
+ *
+ * The protocol is one command per line of UTF-8 text. A client sends:
+ * JOIN room name    joins (or creates) a room, leaving any room it was in
+ * START [seed]      starts a round in its room, on a random board unless a seed is given
+ * WORD word         submits a word, answered by "OK word points score" or "BAD word reason"
+ * QUIT              closes the connection
+ * The server sends everyone in a room JOINED and LEFT as players come and go, "BOARD seed height width letters"
+ * when a round starts, "TIME seconds" once a second, and at the end of a round "END maxScore words", a
+ * "SCORE name score total" line for each player, and to each player "MISSED words". Mistakes get "ERROR message".
+ *
+ * Usage: java GameServer [port]
+ * The port is 4000 by default. Boards are 5x5 unless the "boggle.size" system property is set, and rounds last
+ * Solution.GAME_TIME seconds unless the "boggle.server.gameTime" system property is set. Each outbox holds 1024
+ * lines unless the "boggle.server.outbox" system property is set.
+ */
+public class GameServer {
+
+    private static final LatencyHistogram COMMANDS = Metrics.histogram("server.command");
+    private static final int CACHE_CAPACITY = 1024;
+    private static final long WRITER_WAIT_SECONDS = 5;
+
+    private final int TRAY_SIZE = Integer.getInteger("boggle.size", 5);
+    private final int GAME_TIME = Integer.getInteger("boggle.server.gameTime", Solution.GAME_TIME);
+    private final int OUTBOX_CAPACITY = Integer.getInteger("boggle.server.outbox", 1024);
+
+    private Dictionary dictionary;
+    private SolutionCache cache;
+    private ConcurrentHashMap<String,GameRoom> rooms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService timer;
+    private AtomicLong connections = new AtomicLong();
+    private AtomicLong open = new AtomicLong();
+    private AtomicLong overflowed = new AtomicLong();
+    private ExecutorService threads;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        Metrics.startLogging(Long.getLong("boggle.metrics.logSeconds", 0));
+        GameServer server = new GameServer(Dictionaries.get());
+        server.serve(port);
+    }
+
+    /**
+     * @param dictionary The dictionary words are checked against
+     */
+    public GameServer(Dictionary dictionary){
+        this.dictionary = dictionary;
+        cache = new SolutionCache(CACHE_CAPACITY);
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, starting a thread for each one.
+     * @param port The port to listen on
+     * @throws IOException If the port can't be listened on
+     */
+    public void serve(int port) throws IOException {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GameServer timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+        threads = newThreadPerTaskExecutor();
+        try(ServerSocket serverSocket = new ServerSocket(port, 1024)){
+            System.out.println("GameServer listening on port " + port + " with " + dictionary);
+            while(!serverSocket.isClosed()){
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                threads.execute(() -> handle(socket));
+            }
+        } finally {
+            threads.shutdown();
+            timer.shutdown();
+        }
+    }
+
+    /**
+     * @return An executor which runs each task on a new virtual thread if this version of Java has them, or
+     * otherwise on a new (or reused) ordinary thread
+     */
+    static ExecutorService newThreadPerTaskExecutor(){
+        try{
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e){
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Counts down the timer in every room with a round in progress, and closes rooms everyone has left. A room is
+     * only closed while no one can be joining it.
+     */
+    private void tick(){
+        for(GameRoom room : rooms.values()){
+            room.tick();
+        }
+        for(String name : rooms.keySet()){
+            rooms.computeIfPresent(name, (key, room) -> room.isEmpty() && !room.isRoundInProgress() ? null : room);
+        }
+    }
+
+    /**
+     * The lines waiting to be sent to one client. Adding a line never waits: if the outbox is full, the client
+     * isn't keeping up, so everything waiting is thrown away and the client is disconnected.
+     */
+    private static class Outbox implements Consumer<String> {
+        private static final String HANG_UP = new String("HANG_UP");    //Compared by identity, so never sent
+
+        private BlockingQueue<String> lines;
+        private volatile boolean overflowed = false;
+
+        /**
+         * @param capacity The most lines that may wait to be sent
+         */
+        Outbox(int capacity){
+            lines = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void accept(String line){
+            if(!overflowed && !lines.offer(line)){
+                overflowed = true;
+                hangUp();
+            }
+        }
+
+        /**
+         * Tells the writer to stop, after the lines already waiting unless the outbox overflowed.
+         */
+        void hangUp(){
+            while(!lines.offer(HANG_UP)){
+                lines.clear();
+            }
+        }
+    }
+
+    /**
+     * Sends the lines put in a client's outbox until it is hung up or the client goes away, flushing whenever the
+     * outbox is empty. If the outbox overflowed, the connection is closed, which also stops the client's reader.
+     * @param socket The client's connection
+     * @param out The connection's output
+     * @param outbox The client's outbox
+     */
+    private void write(Socket socket, Writer out, Outbox outbox){
+        try{
+            String line;
+            while((line = outbox.lines.take()) != Outbox.HANG_UP){
+                out.write(line);
+                out.write('\n');
+                if(outbox.lines.isEmpty()){
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e){
+            //The client has gone, and its reader will notice when it next reads
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        } finally {
+            if(outbox.overflowed){
+                overflowed.incrementAndGet();
+                try{
+                    socket.close();
+                } catch (IOException e){
+                    //Already closed
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts a player in a room, creating the room if it doesn't exist.
+     * @param name The room's name
+     * @param player The player joining
+     * @return The room
+     */
+    private GameRoom join(String name, GameRoom.Player player){
+        return rooms.compute(name, (key, room) -> {
+            if(room == null){
+                room = new GameRoom(key, dictionary, TRAY_SIZE, GAME_TIME, cache);
+            }
+            room.join(player);
+            return room;
+        });
+    }
+
+    /**
+     * Reads and answers one client's commands until it quits or disconnects, with a writer thread sending
+     * everything put in the client's outbox.
+     * @param socket The client's connection
+     */
+    private void handle(Socket socket){
+        open.incrementAndGet();
+        GameRoom room = null;
+        GameRoom.Player player = null;
+        Outbox outbox = new Outbox(OUTBOX_CAPACITY);
+        try(Socket s = socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))){
+            Future<?> writer = threads.submit(() -> write(s, out, outbox));
+            try{
+                String line;
+                while((line = in.readLine()) != null){
+                    long start = Metrics.start();
+                    String[] command = line.trim().split("\\s+");
+                    if(command[0].equals("QUIT")){
+                        break;
+                    } else if(command[0].equals("JOIN") && command.length == 3){
+                        if(room != null){
+                            room.leave(player);
+                        }
+                        player = new GameRoom.Player(command[2], outbox);
+                        room = join(command[1], player);
+                    } else if(room == null){
+                        outbox.accept("ERROR join a room first");
+                    } else if(command[0].equals("START") && command.length <= 2){
+                        start(room, command, outbox);
+                    } else if(command[0].equals("WORD") && command.length == 2){
+                        outbox.accept(room.submit(player, command[1]));
+                    } else {
+                        outbox.accept("ERROR unknown command " + command[0]);
+                    }
+                    COMMANDS.recordSince(start);
+                }
+            } finally {
+                if(room != null){
+                    room.leave(player);
+                }
+                outbox.hangUp();
+                awaitWriter(writer);
+            }
+        } catch (IOException e){
+            //The client went away, so the connection is finished
+        } finally {
+            open.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits a little while for a connection's writer to send what is left in its outbox, so the connection isn't
+     * closed under it.
+     * @param writer The writer
+     */
+    private static void awaitWriter(Future<?> writer){
+        try{
+            writer.get(WRITER_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e){
+            //Closing the connection stops it
+        }
+    }
+
+    /**
+     * Starts a round in a room.
+     * @param room The client's room
+     * @param command The START command and, if given, its seed
+     * @param outbox The client's outbox, for reporting a mistake
+     */
+    private void start(GameRoom room, String[] command, Outbox outbox){
+        long seed;
+        try{
+            seed = command.length == 2 ? Long.parseLong(command[1]) : new SplittableRandom().nextLong();
+        } catch (NumberFormatException e){
+            outbox.accept("ERROR seed is not a number");
+            return;
+        }
+        if(!room.start(seed)){
+            outbox.accept("ERROR round already in progress");
+        }
+    }
+
+    @Override
+    public String toString(){
+        return String.format("GameServer: %d rooms, %d open connections, %d connections in all, %d too slow",
+                rooms.size(), open.get(), connections.get(), overflowed.get());
+    }
+}
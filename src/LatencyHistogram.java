@@ -0,0 +1,122 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Author: Luke Gehman
+ * Counts how long something takes, in buckets that double in width (1ns, 2ns, 4ns ... ). Percentiles are
+ * estimated to within a factor of two, which is plenty to tell a 100ns lookup from a 10ms file read. Recording is
+ * safe and cheap from any number of threads.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private String name;
+    private LongAdder[] buckets;
+    private LongAdder count = new LongAdder();
+    private LongAdder totalNanos = new LongAdder();
+    private AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param name The name of the thing being timed
+     */
+    public LatencyHistogram(String name){
+        this.name = name;
+        buckets = new LongAdder[Long.SIZE];
+        for(int i=0;i<buckets.length;i++){
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos A time taken, in nanoseconds
+     */
+    public void record(long nanos){
+        if(nanos < 1){
+            nanos = 1;
+        }
+        buckets[63 - Long.numberOfLeadingZeros(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        if(nanos > maxNanos.get()){
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Records the time since a call to Metrics.start() or Metrics.startHotPath(), if that call read the clock.
+     * @param startNanos The value returned by Metrics.start() or Metrics.startHotPath()
+     */
+    public void recordSince(long startNanos){
+        if(Metrics.ENABLED && startNanos != 0){
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @return The name of the thing being timed
+     */
+    public String getName(){
+        return name;
+    }
+
+    @Override
+    public long getCount(){
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMicros(){
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e3 / n;
+    }
+
+    @Override
+    public double getMaxMicros(){
+        return maxNanos.get() / 1e3;
+    }
+
+    @Override
+    public double getMedianMicros(){
+        return getPercentileMicros(50);
+    }
+
+    @Override
+    public double get99thPercentileMicros(){
+        return getPercentileMicros(99);
+    }
+
+    /**
+     * @param percentile A number from 0 to 100
+     * @return The upper edge of the bucket holding that percentile of the recorded times, in microseconds
+     */
+    public double getPercentileMicros(double percentile){
+        long n = count.sum();
+        if(n == 0){
+            return 0;
+        }
+        long rank = (long)Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for(int i=0;i<buckets.length;i++){
+            seen += buckets[i].sum();
+            if(seen >= rank){
+                return Math.min((double)(2L << Math.min(i, 62)), maxNanos.get()) / 1e3;
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public void reset(){
+        for(LongAdder bucket : buckets){
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%s: n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", name, getCount(),
+                getMeanMicros(), getMedianMicros(), get99thPercentileMicros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Author: Luke Gehman
+ * The view of a LatencyHistogram published over JMX.
+ */
+public interface LatencyHistogramMXBean {
+
+    /**
+     * @return The number of times recorded
+     */
+    long getCount();
+
+    /**
+     * @return The mean time recorded, in microseconds
+     */
+    double getMeanMicros();
+
+    /**
+     * @return The longest time recorded, in microseconds
+     */
+    double getMaxMicros();
+
+    /**
+     * @return The time under which half the recorded times fall, in microseconds
+     */
+    double getMedianMicros();
+
+    /**
+     * @return The time under which 99% of the recorded times fall, in microseconds
+     */
+    double get99thPercentileMicros();
+
+    /**
+     * Forgets every time recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,94 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Author: Luke Gehman
+ * Holds the latency histograms for the game's hot paths, each published as a JMX MBean under "BoggleTrainer" so
+ * it can be watched from JConsole or VisualVM. The histograms can also be printed on a schedule. Timing can be
+ * switched off with -Dboggle.metrics=false, in which case start() and recordSince() cost nothing.
+ *
+ * Single dictionary and board lookups take well under a microsecond, so reading the clock twice for each one would
+ * be a large part of their cost. They are timed with startHotPath() instead, which only reads the clock if
+ * -Dboggle.metrics.hotPaths=true is also given.
+ *
+ * Usage:
+ * long start = Metrics.start();
+ * ...
+ * HISTOGRAM.recordSince(start);
+ */
+public class Metrics {
+
+    public static final boolean ENABLED = !"false".equals(System.getProperty("boggle.metrics"));
+    public static final boolean HOT_PATHS = ENABLED && Boolean.getBoolean("boggle.metrics.hotPaths");
+
+    private static Map<String,LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService logger;
+
+    /**
+     * @param name The name of the thing being timed, such as "dictionary.contains"
+     * @return The histogram with that name, created and published over JMX if it doesn't exist yet
+     */
+    public static LatencyHistogram histogram(String name){
+        return histograms.computeIfAbsent(name, key -> {
+            LatencyHistogram histogram = new LatencyHistogram(key);
+            try{
+                ManagementFactory.getPlatformMBeanServer().registerMBean(histogram,
+                        new ObjectName("BoggleTrainer:type=Latency,name=" + key));
+            } catch (JMException e){
+                e.printStackTrace();
+            }
+            return histogram;
+        });
+    }
+
+    /**
+     * @return The current time to pass to recordSince(), or 0 if metrics are switched off
+     */
+    public static long start(){
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return The current time to pass to recordSince(), or 0, which recordSince() ignores, unless hot path
+     * metrics are switched on
+     */
+    public static long startHotPath(){
+        return HOT_PATHS ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Prints every histogram that has recorded something, once per period, on a background thread.
+     * @param periodSeconds The time between printouts
+     */
+    public static synchronized void startLogging(long periodSeconds){
+        if(logger != null || periodSeconds <= 0){
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> System.out.print(summary()), periodSeconds, periodSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return One line for every histogram that has recorded something
+     */
+    public static String summary(){
+        StringBuilder stringBuilder = new StringBuilder();
+        for(LatencyHistogram histogram : histograms.values()){
+            if(histogram.getCount() > 0){
+                stringBuilder.append(histogram).append('\n');
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
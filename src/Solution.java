@@ -0,0 +1,109 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Author: Luke Gehman
+ * A board along with every word that can be found on it, in alphabetical order, and the highest score a
+ * player could get on it. Also holds the rules every way of playing shares: the shortest word that counts, how
+ * words are scored, and how long a round lasts.
+ */
+public class Solution {
+    public static final int MIN_WORD_LENGTH = 3;
+    public static final int GAME_TIME = 180;   //Seconds
+
+    private Board board;
+    private SortedSet<String> words;
+    private int maxScore;
+    private String longestWord;
+
+    /**
+     * @param board The board that was solved
+     * @param words The words found on the board, each at least MIN_WORD_LENGTH letters long
+     */
+    public Solution(Board board, Collection<String> words){
+        this.board = board;
+        this.words = Collections.unmodifiableSortedSet(new TreeSet<>(words));
+        maxScore = 0;
+        longestWord = "";
+        for(String word : this.words){
+            maxScore += score(word);
+            if(word.length() > longestWord.length()){
+                longestWord = word;
+            }
+        }
+    }
+
+    /**
+     * Makes a copy of a solution for another board with the same words, such as a rotation or reflection of it.
+     * @param board The other board
+     * @param solution The solution to copy
+     */
+    private Solution(Board board, Solution solution){
+        this.board = board;
+        words = solution.words;
+        maxScore = solution.maxScore;
+        longestWord = solution.longestWord;
+    }
+
+    /**
+     * @param board A board with the same words as this solution's board
+     * @return This solution if it is for that board, otherwise a copy of it for that board
+     */
+    public Solution forBoard(Board board){
+        return board == this.board ? this : new Solution(board, this);
+    }
+
+    /**
+     * @param word A valid word
+     * @return The number of points the word is worth: one for every letter past the second
+     */
+    public static int score(String word){
+        return word.length()-2;
+    }
+
+    /**
+     * @return The board that was solved
+     */
+    public Board getBoard(){
+        return board;
+    }
+
+    /**
+     * @return Every word on the tray, in alphabetical order
+     */
+    public SortedSet<String> getWords(){
+        return words;
+    }
+
+    /**
+     * @param word A string
+     * @return True if the string is one of the words on the tray
+     */
+    public boolean contains(String word){
+        return words.contains(word);
+    }
+
+    /**
+     * @return The number of words on the tray
+     */
+    public int getWordCount(){
+        return words.size();
+    }
+
+    /**
+     * @return The longest word on the tray (the first alphabetically if there is a tie), or an empty string if
+     * there are no words
+     */
+    public String getLongestWord(){
+        return longestWord;
+    }
+
+    /**
+     * @return The sum of the scores of every word on the tray
+     */
+    public int getMaxScore(){
+        return maxScore;
+    }
+}
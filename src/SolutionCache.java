@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Author: Luke Gehman
+ * Remembers the solutions of recently solved boards, so boards that come up again (shared daily boards, replayed
+ * seeds, training sets) aren't solved again. Rotating or reflecting a board doesn't change the words on it, so each
+ * board is stored under a canonical key that is the same for all 8 of its rotations and reflections. The cache
+ * holds a fixed number of boards and forgets the least recently used one when it is full.
+ *
+ * If given a spill file, boards forgotten from memory are written to the file instead of being lost, along with
+ * every board still in memory when the cache is closed. A cache opened on the same file later, with the same
+ * dictionary, finds those boards there. A cache is safe to share between threads.
+ */
+public class SolutionCache {
+
+    static final int MAGIC = 0x42475343;       //"BGSC"
+    static final int VERSION = 2;
+
+    private LinkedHashMap<String,Solution> solutions;
+    private Map<String,Long> spilled = new HashMap<>();     //Where each board's words start in the spill file
+    private RandomAccessFile spill;
+
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong spillHits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    /**
+     * Sets up a cache held only in memory.
+     * @param capacity The most boards to hold
+     */
+    public SolutionCache(int capacity){
+        this(capacity, null, null);
+    }
+
+    /**
+     * Sets up a cache which spills to a file. If the file was written with another dictionary it is emptied.
+     * @param capacity The most boards to hold in memory
+     * @param dictionary The dictionary boards are solved with
+     * @param spillFile The file to keep boards in, or null to hold them only in memory
+     */
+    public SolutionCache(int capacity, Dictionary dictionary, Path spillFile){
+        solutions = new LinkedHashMap<String,Solution>(16, 0.75f, true){
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Solution> eldest){
+                if(size() <= capacity){
+                    return false;
+                }
+                spill(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        if(spillFile != null){
+            openSpill(spillFile, dictionary);
+        }
+    }
+
+    /**
+     * Opens the spill file and finds the boards already in it. If the file can't be used the cache carries on
+     * without one.
+     * @param spillFile The file to keep boards in
+     * @param dictionary The dictionary boards are solved with
+     */
+    private void openSpill(Path spillFile, Dictionary dictionary){
+        try{
+            spill = new RandomAccessFile(spillFile.toFile(), "rw");
+            if(!readSpillHeader(dictionary)){
+                spill.setLength(0);
+                spill.writeInt(MAGIC);
+                spill.writeInt(VERSION);
+                spill.writeInt(dictionary.getWordCount());
+                spill.writeLong(dictionary.getChecksum());
+                spill.writeUTF(dictionary.getAlphabet().getLetters());
+                return;
+            }
+            while(spill.getFilePointer() < spill.length()){
+                String key = new String(readBytes(), StandardCharsets.UTF_8);
+                spilled.put(key, spill.getFilePointer());
+                int length = readLength();
+                spill.seek(spill.getFilePointer() + length);
+            }
+        } catch (IOException e){
+            e.printStackTrace();
+            if(spill != null){
+                try{
+                    spill.close();
+                } catch (IOException closing){
+                    closing.printStackTrace();
+                }
+            }
+            spill = null;
+            spilled.clear();
+        }
+    }
+
+    /**
+     * @param dictionary The dictionary boards are solved with
+     * @return True if the spill file was written with the same dictionary, with the same words and not just the
+     * same number of them, leaving it positioned at the first board
+     * @throws IOException If the file can't be read
+     */
+    private boolean readSpillHeader(Dictionary dictionary) throws IOException {
+        if(spill.length() < 22){
+            return false;
+        }
+        return spill.readInt() == MAGIC && spill.readInt() == VERSION
+                && spill.readInt() == dictionary.getWordCount()
+                && spill.readLong() == dictionary.getChecksum()
+                && spill.readUTF().equals(dictionary.getAlphabet().getLetters());
+    }
+
+    /**
+     * Finds the words on a board, from the cache if the board or any rotation or reflection of it is there, and
+     * otherwise by solving it and remembering the solution.
+     * @param board The board to solve
+     * @param solver The solver to use if the board isn't in the cache
+     * @return The words found and the maximum score
+     */
+    public Solution solve(Board board, Solver solver){
+        String key = canonicalKey(board);
+        Solution solution = get(key);
+        if(solution != null){
+            return solution.forBoard(board);
+        }
+        solution = solver.solve(board);
+        synchronized(this){
+            solutions.put(key, solution);
+        }
+        return solution;
+    }
+
+    /**
+     * Looks a board up in memory, and then in the spill file, counting a hit or a miss.
+     * @param key The board's canonical key
+     * @return The board's solution, or null if it isn't in the cache
+     */
+    private synchronized Solution get(String key){
+        Solution solution = solutions.get(key);
+        if(solution != null){
+            hits.incrementAndGet();
+            return solution;
+        }
+        Long offset = spilled.get(key);
+        if(offset != null){
+            try{
+                spill.seek(offset);
+                String words = new String(readBytes(), StandardCharsets.UTF_8);
+                solution = new Solution(null, words.isEmpty() ? Collections.<String>emptyList()
+                        : Arrays.asList(words.split("\n")));
+                solutions.put(key, solution);
+                spillHits.incrementAndGet();
+                return solution;
+            } catch (IOException e){
+                e.printStackTrace();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Writes a board's words to the end of the spill file, unless there is no spill file or the board is already
+     * in it.
+     * @param key The board's canonical key
+     * @param solution The board's solution
+     */
+    private void spill(String key, Solution solution){
+        if(spill == null || spilled.containsKey(key)){
+            return;
+        }
+        try{
+            spill.seek(spill.length());
+            writeBytes(key.getBytes(StandardCharsets.UTF_8));
+            spilled.put(key, spill.getFilePointer());
+            writeBytes(String.join("\n", solution.getWords()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The next length-prefixed run of bytes in the spill file
+     * @throws IOException If the file can't be read, or the length doesn't fit in it
+     */
+    private byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readLength()];
+        spill.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return The length of the run of bytes starting at the current position in the spill file
+     * @throws IOException If the file can't be read, or the length is negative or runs past the end of the file
+     */
+    private int readLength() throws IOException {
+        int length = spill.readInt();
+        if(length < 0 || length > spill.length() - spill.getFilePointer()){
+            throw new IOException("Corrupt spill file: a length of " + length + " at "
+                    + (spill.getFilePointer() - 4) + " runs past the end");
+        }
+        return length;
+    }
+
+    /**
+     * @param bytes Bytes to write to the spill file, after their length
+     * @throws IOException If the file can't be written
+     */
+    private void writeBytes(byte[] bytes) throws IOException {
+        spill.writeInt(bytes.length);
+        spill.write(bytes);
+    }
+
+    /**
+     * Writes every board held in memory to the spill file, if there is one, and closes it.
+     */
+    public synchronized void close(){
+        if(spill == null){
+            return;
+        }
+        for(Map.Entry<String,Solution> entry : solutions.entrySet()){
+            spill(entry.getKey(), entry.getValue());
+        }
+        try{
+            spill.close();
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+        spill = null;
+    }
+
+    /**
+     * Finds the key a board is stored under: the smallest of the board's size and letters over all of its
+     * rotations and reflections. Boards that are rotations or reflections of each other have the same key.
+     * @param board Any board
+     * @return The board's canonical key
+     */
+    public static String canonicalKey(Board board){
+        int height = board.getHeight();
+        int width = board.getWidth();
+        String best = null;
+        char[] letters = new char[board.size()];
+        for(int symmetry=0;symmetry<8;symmetry++){
+            boolean transpose = (symmetry & 4) != 0;
+            boolean flipRows = (symmetry & 1) != 0;
+            boolean flipColumns = (symmetry & 2) != 0;
+            int rows = transpose ? width : height;
+            int columns = transpose ? height : width;
+            for(int r=0;r<rows;r++){
+                for(int c=0;c<columns;c++){
+                    int row = transpose ? c : r;
+                    int column = transpose ? r : c;
+                    row = flipRows ? height-1-row : row;
+                    column = flipColumns ? width-1-column : column;
+                    letters[r*columns + c] = board.getLetter(row, column);
+                }
+            }
+            String key = rows + "x" + columns + ":" + new String(letters);
+            if(best == null || key.compareTo(best) < 0){
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The number of boards held in memory
+     */
+    public synchronized int size(){
+        return solutions.size();
+    }
+
+    /**
+     * @return The number of boards found in memory
+     */
+    public long getHitCount(){
+        return hits.get();
+    }
+
+    /**
+     * @return The number of boards found in the spill file
+     */
+    public long getSpillHitCount(){
+        return spillHits.get();
+    }
+
+    /**
+     * @return The number of boards that had to be solved
+     */
+    public long getMissCount(){
+        return misses.get();
+    }
+
+    /**
+     * @return The fraction of lookups found in memory or in the spill file
+     */
+    public double getHitRate(){
+        long found = hits.get() + spillHits.get();
+        long lookups = found + misses.get();
+        return lookups == 0 ? 0 : (double) found / lookups;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("SolutionCache: %d boards in memory, %d spilled, %d hits, %d spill hits, %d misses "
+                + "(%.1f%% hit rate)", solutions.size(), spilled.size(), hits.get(), spillHits.get(), misses.get(),
+                100 * getHitRate());
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Author: Luke Gehman
+ * Finds every dictionary word on a tray. The search starts a walk from each tile and follows the dictionary's trie
+ * alongside it, so a path is abandoned as soon as its letters stop being the start of any word. A Solver reuses
+ * its buffers between calls, so each thread should have its own. Boards of Board.PARALLEL_THRESHOLD tiles or more
+ * are split up by starting tile and searched in parallel, with every task sharing the same read-only dictionary.
+ */
+public class Solver {
+    private static final LatencyHistogram SOLVES = Metrics.histogram("solver.solve");
+    private static final int TILES_PER_TASK = 64;
+
+    private Dictionary dictionary;
+    private Search search;
+
+    /**
+     * @param dictionary The dictionary to find words from
+     */
+    public Solver(Dictionary dictionary){
+        this.dictionary = dictionary;
+        search = new Search(dictionary);
+    }
+
+    /**
+     * Finds every word of at least Solution.MIN_WORD_LENGTH letters on a board.
+     * @param board The board to search
+     * @return The words found and the maximum score
+     */
+    public Solution solve(Board board){
+        long start = Metrics.start();
+        Set<String> found;
+        if(board.size() < Board.PARALLEL_THRESHOLD){
+            found = search.fromTiles(board, 0, board.size());
+        } else {
+            found = ForkJoinPool.commonPool().invoke(new SolveTask(dictionary, board, 0, board.size()));
+        }
+        Solution solution = new Solution(board, found);
+        SOLVES.recordSince(start);
+        return solution;
+    }
+
+    /**
+     * Searches a range of starting tiles, splitting it in half until it is small enough for one thread.
+     */
+    private static class SolveTask extends RecursiveTask<Set<String>> {
+        private static final long serialVersionUID = 1L;
+        private transient Dictionary dictionary;
+        private transient Board board;
+        private int from;
+        private int to;
+
+        /**
+         * @param dictionary The dictionary to find words from
+         * @param board The board to search
+         * @param from The first starting tile
+         * @param to One past the last starting tile
+         */
+        SolveTask(Dictionary dictionary, Board board, int from, int to){
+            this.dictionary = dictionary;
+            this.board = board;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Set<String> compute(){
+            if(to - from <= TILES_PER_TASK){
+                return new Search(dictionary).fromTiles(board, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SolveTask left = new SolveTask(dictionary, board, from, middle);
+            left.fork();
+            Set<String> found = new SolveTask(dictionary, board, middle, to).compute();
+            Set<String> other = left.join();
+            if(other.size() > found.size()){
+                Set<String> swap = found;
+                found = other;
+                other = swap;
+            }
+            found.addAll(other);
+            return found;
+        }
+    }
+
+    /**
+     * The buffers for one walk over a board: the letters along the current path and which tiles it uses. Up to
+     * 64 tiles, the tiles used are tracked in the bits of a long, and beyond that in an array of flags.
+     */
+    private static class Search {
+        private Dictionary dictionary;
+        private Board board;
+        private int height;
+        private int width;
+        private char[] word = new char[16];
+        private boolean[] used = new boolean[0];
+        private Set<String> found;
+
+        /**
+         * @param dictionary The dictionary to find words from
+         */
+        Search(Dictionary dictionary){
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Finds every word whose first letter is on one of a range of tiles.
+         * @param board The board to search
+         * @param from The first starting tile
+         * @param to One past the last starting tile
+         * @return The words found
+         */
+        Set<String> fromTiles(Board board, int from, int to){
+            this.board = board;
+            height = board.getHeight();
+            width = board.getWidth();
+            found = new HashSet<>();
+            boolean small = board.size() <= Long.SIZE;
+            if(!small && used.length < board.size()){
+                used = new boolean[board.size()];
+            }
+            for(int cell=from;cell<to;cell++){
+                int node = dictionary.child(Dictionary.ROOT, board.getLetter(cell));
+                if(node == -1){
+                    continue;
+                }
+                if(small){
+                    search(cell, node, 1, 1L << cell);
+                } else {
+                    used[cell] = true;
+                    search(cell, node, 1);
+                    used[cell] = false;
+                }
+            }
+            Set<String> result = found;
+            found = null;
+            this.board = null;
+            return result;
+        }
+
+        /**
+         * Extends the current path to each unused neighbouring tile whose letter continues a word in the
+         * dictionary.
+         * @param cell The tile the path has just reached
+         * @param node The trie node for the letters along the path
+         * @param length The number of tiles in the path
+         * @param used A bit for each tile in the path
+         */
+        private void search(int cell, int node, int length, long used){
+            if(!visit(cell, node, length)){
+                return;
+            }
+            int row = cell / width;
+            int column = cell % width;
+            for(int i=Math.max(row-1,0);i<=Math.min(row+1,height-1);i++){
+                for(int j=Math.max(column-1,0);j<=Math.min(column+1,width-1);j++){
+                    int next = i*width + j;
+                    if((used & (1L << next)) != 0){
+                        continue;
+                    }
+                    int child = dictionary.child(node, board.getLetter(next));
+                    if(child != -1){
+                        search(next, child, length+1, used | (1L << next));
+                    }
+                }
+            }
+        }
+
+        /**
+         * The same search for boards with more than 64 tiles, flagging each tile while it is part of the path.
+         * @param cell The tile the path has just reached
+         * @param node The trie node for the letters along the path
+         * @param length The number of tiles in the path
+         */
+        private void search(int cell, int node, int length){
+            if(!visit(cell, node, length)){
+                return;
+            }
+            int row = cell / width;
+            int column = cell % width;
+            for(int i=Math.max(row-1,0);i<=Math.min(row+1,height-1);i++){
+                for(int j=Math.max(column-1,0);j<=Math.min(column+1,width-1);j++){
+                    int next = i*width + j;
+                    if(used[next]){
+                        continue;
+                    }
+                    int child = dictionary.child(node, board.getLetter(next));
+                    if(child != -1){
+                        used[next] = true;
+                        search(next, child, length+1);
+                        used[next] = false;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the tile's letter to the path, and records the path's word if it is one.
+         * @param cell The tile the path has just reached
+         * @param node The trie node for the letters along the path
+         * @param length The number of tiles in the path
+         * @return True if any word continues past this path
+         */
+        private boolean visit(int cell, int node, int length){
+            if(length > word.length){
+                word = Arrays.copyOf(word, word.length*2);
+            }
+            word[length-1] = board.getLetter(cell);
+            if(length >= Solution.MIN_WORD_LENGTH && dictionary.isWord(node)){
+                found.add(new String(word, 0, length));
+            }
+            return dictionary.hasChildren(node);
+        }
+    }
+}
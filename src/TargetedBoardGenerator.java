@@ -0,0 +1,353 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Author: Luke Gehman
+ * Generates boards to order: boards whose word count and maximum score fall in given ranges, and which have words
+ * of given lengths. Each search starts from an ordinary random board and improves it by simulated annealing,
+ * changing one tile at a time (or swapping two) and re-solving the board after each change. A change that brings
+ * the board closer to the target is always kept, and one that takes it further away is sometimes kept, less often
+ * as the search goes on, so a search doesn't get stuck. No change may take a letter past the generator's
+ * LETTER_MAX or leave a 'q' with no 'u' beside it that had one. Several searches run at once on worker threads,
+ * and the first to reach the target stops the others.
+ *
+ * Usage: java TargetedBoardGenerator target [boards] [budget ms]
+ * For example "words=80-120,score=150-250,lengths=8" asks for 80 to 120 words worth 150 to 250 points, with at
+ * least one 8 letter word. 10 boards are generated within 200ms each by default.
+ */
+public class TargetedBoardGenerator {
+
+    private static final LatencyHistogram SEARCHES = Metrics.histogram("generator.targeted");
+    private static final double START_TEMPERATURE = 8;
+    private static final double MIN_TEMPERATURE = 0.5;
+    private static final double COOLING = 0.995;
+    private static final int MUTATION_ATTEMPTS = 16;
+
+    private Dictionary dictionary;
+    private int height;
+    private int width;
+    private int workers;
+    private ExecutorService threads;
+    private SplittableRandom seeds = new SplittableRandom();
+
+    /**
+     * What a generated board must be like. Each range includes both ends.
+     */
+    public static class Target {
+        private int minWords;
+        private int maxWords;
+        private int minScore;
+        private int maxScore;
+        private int[] lengths;
+
+        /**
+         * @param minWords The fewest words the board may have
+         * @param maxWords The most words the board may have
+         * @param minScore The lowest maximum score the board may have
+         * @param maxScore The highest maximum score the board may have
+         * @param lengths The word lengths the board must have at least one word of
+         */
+        public Target(int minWords, int maxWords, int minScore, int maxScore, int... lengths){
+            this.minWords = minWords;
+            this.maxWords = maxWords;
+            this.minScore = minScore;
+            this.maxScore = maxScore;
+            this.lengths = lengths.clone();
+        }
+
+        /**
+         * Reads a target written as comma separated parts, any of which may be left out: "words=min-max",
+         * "score=min-max" and "lengths=a;b;c", such as "words=80-120,lengths=8".
+         * @param target The target as text
+         * @return The target
+         */
+        public static Target parse(String target){
+            int[] words = {0, Integer.MAX_VALUE};
+            int[] score = {0, Integer.MAX_VALUE};
+            int[] lengths = new int[0];
+            for(String part : target.split(",")){
+                String[] keyValue = part.trim().split("=", 2);
+                if(keyValue.length != 2){
+                    throw new IllegalArgumentException("Expected key=value but got " + part);
+                }
+                if(keyValue[0].equals("words")){
+                    words = range(keyValue[1]);
+                } else if(keyValue[0].equals("score")){
+                    score = range(keyValue[1]);
+                } else if(keyValue[0].equals("lengths")){
+                    String[] values = keyValue[1].split(";");
+                    lengths = new int[values.length];
+                    for(int i=0;i<values.length;i++){
+                        lengths[i] = Integer.parseInt(values[i].trim());
+                    }
+                } else {
+                    throw new IllegalArgumentException("Unknown target " + keyValue[0]);
+                }
+            }
+            return new Target(words[0], words[1], score[0], score[1], lengths);
+        }
+
+        /**
+         * @param range A range such as "80-120", or a single number
+         * @return The lowest and highest values in the range
+         */
+        private static int[] range(String range){
+            String[] ends = range.split("-", 2);
+            int low = Integer.parseInt(ends[0].trim());
+            return new int[]{low, ends.length == 2 ? Integer.parseInt(ends[1].trim()) : low};
+        }
+
+        /**
+         * @param solution A solved board
+         * @return How far the board is from the target: the number of words and points it is out of range by,
+         * plus for each length it has no word of, how many letters its nearest shorter word is short by
+         */
+        public double distance(Solution solution){
+            double distance = outside(solution.getWordCount(), minWords, maxWords)
+                    + outside(solution.getMaxScore(), minScore, maxScore);
+            if(lengths.length > 0){
+                boolean[] found = new boolean[solution.getLongestWord().length() + 1];
+                for(String word : solution.getWords()){
+                    found[word.length()] = true;
+                }
+                for(int length : lengths){
+                    int nearest = Math.min(length, found.length-1);
+                    while(nearest > 0 && !found[nearest]){
+                        nearest--;
+                    }
+                    distance += length - nearest;
+                }
+            }
+            return distance;
+        }
+
+        /**
+         * @param solution A solved board
+         * @return True if the board meets the target
+         */
+        public boolean matches(Solution solution){
+            return distance(solution) == 0;
+        }
+
+        /**
+         * @param value A value
+         * @param low The lowest value in range
+         * @param high The highest value in range
+         * @return How far the value is outside the range, or 0 if it is in it
+         */
+        private static int outside(int value, int low, int high){
+            return value < low ? low - value : value > high ? value - high : 0;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Target target = Target.parse(args[0]);
+        int boards = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        int size = Integer.getInteger("boggle.size", 5);
+        TargetedBoardGenerator generator = new TargetedBoardGenerator(Dictionaries.get(), size, size,
+                Runtime.getRuntime().availableProcessors());
+        int matched = 0;
+        for(int i=0;i<boards;i++){
+            long start = System.nanoTime();
+            Solution solution = generator.generate(target, budget);
+            boolean matches = target.matches(solution);
+            matched += matches ? 1 : 0;
+            System.out.printf("%s%d words, max score %d, longest %s, %s in %.1f ms%n", solution.getBoard(),
+                    solution.getWordCount(), solution.getMaxScore(), solution.getLongestWord(),
+                    matches ? "matched" : "missed", (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf("%d of %d boards matched%n", matched, boards);
+        generator.close();
+    }
+
+    /**
+     * @param dictionary The dictionary to solve boards with, whose alphabet the letters are drawn from
+     * @param height The number of rows on the boards to generate
+     * @param width The number of columns on the boards to generate
+     * @param workers The number of searches to run at once
+     */
+    public TargetedBoardGenerator(Dictionary dictionary, int height, int width, int workers){
+        this.dictionary = dictionary;
+        this.height = height;
+        this.width = width;
+        this.workers = Math.max(workers, 1);
+        threads = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "TargetedBoardGenerator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches for a board meeting a target until one is found or the time runs out. If none is found in time,
+     * the closest board found is returned instead, which the caller can check with Target.matches().
+     * @param target What the board must be like
+     * @param budgetMillis The most time to search for, in milliseconds
+     * @return A solved board, meeting the target if one was found in time
+     * @throws InterruptedException If interrupted while waiting for the searches
+     */
+    public Solution generate(Target target, long budgetMillis) throws InterruptedException {
+        long start = Metrics.start();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        AtomicReference<Solution> found = new AtomicReference<>();
+        List<Future<Solution>> searches = new ArrayList<>();
+        synchronized(seeds){
+            for(int i=0;i<workers;i++){
+                long seed = seeds.nextLong();
+                searches.add(threads.submit(() -> search(target, deadline, seed, found)));
+            }
+        }
+        Solution closest = null;
+        try{
+            for(Future<Solution> search : searches){
+                Solution solution = search.get();
+                if(closest == null || target.distance(solution) < target.distance(closest)){
+                    closest = solution;
+                }
+            }
+        } catch (ExecutionException e){
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for(Future<Solution> search : searches){
+                search.cancel(true);                //Only does anything if this thread was interrupted
+            }
+        }
+        SEARCHES.recordSince(start);
+        return found.get() != null ? found.get() : closest;
+    }
+
+    /**
+     * Runs one annealing search until it reaches the target, another search does, or the time runs out.
+     * @param target What the board must be like
+     * @param deadline When to stop, by System.nanoTime()
+     * @param seed The seed for this search's random numbers
+     * @param found Where the first board to meet the target is put
+     * @return The closest board this search found
+     */
+    private Solution search(Target target, long deadline, long seed, AtomicReference<Solution> found){
+        SplittableRandom rand = new SplittableRandom(seed);
+        BoardGenerator generator = new BoardGenerator(height, width, dictionary.getAlphabet(), rand.nextLong());
+        Solver solver = new Solver(dictionary);
+        int letterMax = generator.getLetterMax();
+        Solution current = solver.solve(generator.generate());
+        double currentDistance = target.distance(current);
+        Solution best = current;
+        double bestDistance = currentDistance;
+        double temperature = START_TEMPERATURE;
+        while(bestDistance > 0 && found.get() == null && System.nanoTime() < deadline
+                && !Thread.currentThread().isInterrupted()){
+            char[] letters = mutate(current.getBoard().getLetters(), letterMax, rand);
+            if(letters == null){
+                continue;
+            }
+            Solution candidate = solver.solve(new Board(height, width, letters));
+            double distance = target.distance(candidate);
+            if(distance <= currentDistance
+                    || rand.nextDouble() < Math.exp((currentDistance - distance) / temperature)){
+                current = candidate;
+                currentDistance = distance;
+                if(distance < bestDistance){
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+            temperature = Math.max(temperature * COOLING, MIN_TEMPERATURE);
+        }
+        if(bestDistance == 0){
+            found.compareAndSet(null, best);
+        }
+        return best;
+    }
+
+    /**
+     * Makes a small random change to a board: either swaps two tiles, or puts a new letter on one tile. Changes
+     * which would put more than letterMax of a letter on the board, or leave more 'q's without a 'u' beside them,
+     * are thrown away and another is tried.
+     * @param letters The board's letters, which are changed
+     * @param letterMax The most times one letter may appear on the board
+     * @param rand The source of random numbers
+     * @return The changed letters, or null if no allowed change was found
+     */
+    private char[] mutate(char[] letters, int letterMax, SplittableRandom rand){
+        Alphabet alphabet = dictionary.getAlphabet();
+        int lonelyQs = lonelyQs(letters);
+        for(int attempt=0;attempt<MUTATION_ATTEMPTS;attempt++){
+            int cell = rand.nextInt(letters.length);
+            char old = letters[cell];
+            if(rand.nextBoolean()){
+                int other = rand.nextInt(letters.length);
+                letters[cell] = letters[other];
+                letters[other] = old;
+                if(letters[cell] != old && lonelyQs(letters) <= lonelyQs){
+                    return letters;
+                }
+                letters[other] = letters[cell];
+            } else {
+                char letter = alphabet.letter(rand.nextInt(alphabet.size()));
+                letters[cell] = letter;
+                if(letter != old && count(letters, letter) <= letterMax && lonelyQs(letters) <= lonelyQs){
+                    return letters;
+                }
+            }
+            letters[cell] = old;
+        }
+        return null;
+    }
+
+    /**
+     * @param letters A board's letters
+     * @param letter A letter
+     * @return The number of tiles with that letter
+     */
+    private static int count(char[] letters, char letter){
+        int count = 0;
+        for(char c : letters){
+            if(c == letter){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param letters A board's letters
+     * @return The number of 'q' tiles with no 'u' on any neighbouring tile
+     */
+    private int lonelyQs(char[] letters){
+        int lonely = 0;
+        for(int cell=0;cell<letters.length;cell++){
+            if(letters[cell] != 'q'){
+                continue;
+            }
+            int row = cell / width;
+            int column = cell % width;
+            boolean paired = false;
+            for(int i=Math.max(row-1,0);i<=Math.min(row+1,height-1) && !paired;i++){
+                for(int j=Math.max(column-1,0);j<=Math.min(column+1,width-1);j++){
+                    if(letters[i*width + j] == 'u'){
+                        paired = true;
+                    }
+                }
+            }
+            if(!paired){
+                lonely++;
+            }
+        }
+        return lonely;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void close(){
+        threads.shutdownNow();
+    }
+}
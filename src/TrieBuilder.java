@@ -0,0 +1,183 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Author: Luke Gehman
+ * Builds the packed trie that Dictionary searches. Every node of the trie is a single int holding the code of the
+ * node's letter in the dictionary's Alphabet, a flag marking the end of a word, a flag marking the last of its siblings, and the index of its first
+ * child. The children of a node are stored next to each other in the array, so a lookup only has to scan the
+ * (at most 64) siblings on each level. Identical lists of children are then stored only once, which turns the
+ * trie into a DAWG (directed acyclic word graph): words with the same endings, like "-ing" and "-ness", share
+ * nodes, and the array shrinks to around a quarter of the trie's size.
+ */
+public class TrieBuilder {
+
+    static final int LETTER_MASK = 0x3F;
+    static final int WORD_FLAG = 1 << 6;
+    static final int LAST_FLAG = 1 << 7;
+    static final int CHILD_SHIFT = 8;
+    static final int MAX_NODES = 1 << (32 - CHILD_SHIFT);
+
+    private int[] nodes;
+    private int size;
+
+    /**
+     * Builds a DAWG holding every word in the list. Words containing anything other than lowercase English
+     * letters are skipped, since they could never be formed on a tray.
+     * @param words The words to store, in any order
+     * @return The packed nodes of the DAWG, with the root at index 0
+     */
+    public static int[] build(List<String> words){
+        return build(words, Alphabet.ENGLISH);
+    }
+
+    /**
+     * Builds a DAWG holding every word in the list which is spelled with the given alphabet.
+     * @param words The words to store, in any order
+     * @param alphabet The letters words may contain
+     * @return The packed nodes of the DAWG, with the root at index 0
+     */
+    public static int[] build(List<String> words, Alphabet alphabet){
+        return minimize(buildTrie(words, alphabet));
+    }
+
+    /**
+     * Builds a trie holding every word in the list which is spelled with the given alphabet, without sharing
+     * any nodes. Each word is rewritten as the codes of its letters, so that sorting puts siblings in code order.
+     * @param words The words to store, in any order
+     * @param alphabet The letters words may contain
+     * @return The packed nodes of the trie, with the root at index 0
+     */
+    public static int[] buildTrie(List<String> words, Alphabet alphabet){
+        List<String> sorted = new ArrayList<>(words.size());
+        char[] codes = new char[16];
+        for(String word : words){
+            if(!alphabet.spells(word)){
+                continue;
+            }
+            if(word.length() > codes.length){
+                codes = new char[word.length()];
+            }
+            for(int i=0;i<word.length();i++){
+                codes[i] = (char) alphabet.code(word.charAt(i));
+            }
+            sorted.add(new String(codes, 0, word.length()));
+        }
+        Collections.sort(sorted);
+        return new TrieBuilder().pack(sorted);
+    }
+
+    /**
+     * Lays the trie out breadth first, so that each node's children end up next to each other. Each entry in
+     * the queue is a range of the sorted words sharing a prefix of the given depth, along with the index of the
+     * node for that prefix.
+     * @param sorted Words as letter codes, in lexicographic order
+     * @return The packed nodes of the trie
+     */
+    private int[] pack(List<String> sorted){
+        nodes = new int[1024];
+        size = 1;
+        nodes[0] = LAST_FLAG;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[]{0, sorted.size(), 0, 0});
+        while(!queue.isEmpty()){
+            int[] range = queue.poll();
+            int hi = range[1];
+            int depth = range[2];
+            int parent = range[3];
+            int i = range[0];
+            while(i < hi && sorted.get(i).length() == depth){      //The parent's own word sorts first
+                i++;
+            }
+            int firstChild = size;
+            while(i < hi){
+                char code = sorted.get(i).charAt(depth);
+                boolean word = false;
+                int j = i;
+                while(j < hi && sorted.get(j).charAt(depth) == code){
+                    if(sorted.get(j).length() == depth+1){
+                        word = true;
+                    }
+                    j++;
+                }
+                int node = append(code | (word ? WORD_FLAG : 0));
+                queue.add(new int[]{i, j, depth+1, node});
+                i = j;
+            }
+            if(size > firstChild){
+                nodes[size-1] |= LAST_FLAG;
+                nodes[parent] |= firstChild << CHILD_SHIFT;
+            }
+        }
+        return Arrays.copyOf(nodes, size);
+    }
+
+    /**
+     * Stores each distinct list of children only once. Two lists are the same if they have the same letters and
+     * flags, and each of their nodes leads to the same (already shared) list of children. Lists are visited from
+     * the end of the trie backwards, so a list's children have always been shared before the list itself.
+     * @param trie The packed nodes of a trie built by pack()
+     * @return The packed nodes of the DAWG, with the root at index 0
+     */
+    static int[] minimize(int[] trie){
+        int[] shared = new int[trie.length];        //For the first node of each list, where that list ended up
+        int[] dawg = new int[trie.length];
+        int size = 1;
+        Map<String,Integer> lists = new HashMap<>();
+        StringBuilder key = new StringBuilder();
+        int end = trie.length-1;
+        while(end > 0){
+            int start = end;
+            while(start > 1 && (trie[start-1] & LAST_FLAG) == 0){
+                start--;
+            }
+            key.setLength(0);
+            for(int i=start;i<=end;i++){
+                int children = sharedChildren(trie[i], shared);
+                key.append((char)(trie[i] & 0xFF)).append((char)(children >>> 16)).append((char)children);
+            }
+            Integer list = lists.get(key.toString());
+            if(list == null){
+                list = size;
+                for(int i=start;i<=end;i++){
+                    dawg[size++] = (trie[i] & 0xFF) | (sharedChildren(trie[i], shared) << CHILD_SHIFT);
+                }
+                lists.put(key.toString(), list);
+            }
+            shared[start] = list;
+            end = start-1;
+        }
+        dawg[0] = (trie[0] & 0xFF) | (sharedChildren(trie[0], shared) << CHILD_SHIFT);
+        return Arrays.copyOf(dawg, size);
+    }
+
+    /**
+     * @param node A packed trie node
+     * @param shared Where each list of children already visited ended up
+     * @return The index of the node's shared list of children, or 0 if it has none
+     */
+    private static int sharedChildren(int node, int[] shared){
+        int children = node >>> CHILD_SHIFT;
+        return children == 0 ? 0 : shared[children];
+    }
+
+    /**
+     * @param node A packed node with no child index set
+     * @return The index the node was stored at
+     */
+    private int append(int node){
+        if(size == MAX_NODES){
+            throw new IllegalStateException("Word list too large for a packed trie");
+        }
+        if(size == nodes.length){
+            nodes = Arrays.copyOf(nodes, nodes.length*2);
+        }
+        nodes[size] = node;
+        return size++;
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Author: Luke Gehman
+ * Answers drill questions about a dictionary's words: which words can be made from a set of tiles, which words
+ * are anagrams of some letters, and which words match a pattern with blanks, like "q?i?e". Every word is given a
+ * signature of its length and a mask with one bit for each letter it uses (a long, so alphabets of up to 64
+ * letters fit), and words with the same signature are grouped together. A query first rules out whole groups by
+ * their signature, which skips almost every word without looking at it, and only checks the letters of the words
+ * in the groups left. Words that can be made from a set of tiles are found differently, by walking the
+ * dictionary's trie with a count of each letter left and only following letters that are still available, so
+ * each prefix shared by many words is only checked once. Results are streamed: words are only checked, and
+ * Strings only made, as they are consumed.
+ *
+ * Usage: java WordIndex tiles|anagrams|pattern query
+ */
+public class WordIndex {
+
+    private static final LatencyHistogram BUILDS = Metrics.histogram("index.build");
+
+    private Dictionary dictionary;
+    private Alphabet alphabet;
+    private char[] letters;         //Every word, one after another
+    private int[] wordStarts;       //Where each word starts in letters, plus the end of the last word
+    private int[] groupLengths;     //The length of each group's words, in increasing order
+    private long[] groupMasks;      //The letters used by each group's words, in increasing order within a length
+    private int[] groupStarts;      //The first word in each group, plus the number of words
+
+    public static void main(String[] args){
+        WordIndex index = new WordIndex(Dictionaries.get());
+        long start = System.nanoTime();
+        Stream<String> words;
+        if(args[0].equals("tiles")){
+            words = index.fromTiles(args[1]);
+        } else if(args[0].equals("anagrams")){
+            words = index.anagrams(args[1]);
+        } else {
+            words = index.matching(args[1]);
+        }
+        long count = words.peek(System.out::println).count();
+        System.out.printf("%d words in %.3f ms%n", count, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Builds the index of every word in a dictionary.
+     * @param dictionary The dictionary
+     */
+    public WordIndex(Dictionary dictionary){
+        long start = Metrics.start();
+        this.dictionary = dictionary;
+        alphabet = dictionary.getAlphabet();
+        List<String> words = new ArrayList<>(dictionary.getWordCount());
+        dictionary.forEachWord(words::add);
+        long[] signatures = new long[words.size()];
+        Integer[] order = new Integer[words.size()];
+        for(int i=0;i<order.length;i++){
+            signatures[i] = mask(words.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byLength = Integer.compare(words.get(a).length(), words.get(b).length());
+            return byLength != 0 ? byLength : Long.compareUnsigned(signatures[a], signatures[b]);
+        });
+
+        int total = 0;
+        for(String word : words){
+            total += word.length();
+        }
+        letters = new char[total];
+        wordStarts = new int[words.size() + 1];
+        List<Integer> starts = new ArrayList<>();
+        int position = 0;
+        for(int i=0;i<order.length;i++){
+            String word = words.get(order[i]);
+            if(i == 0 || word.length() != words.get(order[i-1]).length()
+                    || signatures[order[i]] != signatures[order[i-1]]){
+                starts.add(i);
+            }
+            wordStarts[i] = position;
+            word.getChars(0, word.length(), letters, position);
+            position += word.length();
+        }
+        wordStarts[order.length] = position;
+        groupLengths = new int[starts.size()];
+        groupMasks = new long[starts.size()];
+        groupStarts = new int[starts.size() + 1];
+        for(int g=0;g<starts.size();g++){
+            int first = order[starts.get(g)];
+            groupLengths[g] = words.get(first).length();
+            groupMasks[g] = signatures[first];
+            groupStarts[g] = starts.get(g);
+        }
+        groupStarts[starts.size()] = order.length;
+        BUILDS.recordSince(start);
+    }
+
+    /**
+     * @param letters Any string
+     * @return A bit for each letter of the alphabet in the string, or -1 if it has a letter not in the alphabet
+     */
+    private long mask(CharSequence letters){
+        long mask = 0;
+        for(int i=0;i<letters.length();i++){
+            int code = alphabet.code(letters.charAt(i));
+            if(code == -1){
+                return -1;
+            }
+            mask |= 1L << code;
+        }
+        return mask;
+    }
+
+    /**
+     * Finds the words that can be made from a set of tiles, using each tile at most once, such as the letters on
+     * a board. Tiles that aren't letters of the alphabet are ignored.
+     * @param tiles The letters on the tiles, in any order and with repeats
+     * @return The words, in alphabet order
+     */
+    public Stream<String> fromTiles(String tiles){
+        StringBuilder usable = new StringBuilder();
+        for(int i=0;i<tiles.length();i++){
+            if(alphabet.contains(tiles.charAt(i))){
+                usable.append(tiles.charAt(i));
+            }
+        }
+        return StreamSupport.stream(new TileWalk(counts(usable), usable.length()), false);
+    }
+
+    /**
+     * A depth first walk of the dictionary's trie which only follows a letter while there is a tile left for it,
+     * handing over each word as it is reached. The path is kept on explicit stacks so the walk can stop after
+     * any word and carry on when the next one is asked for.
+     */
+    private class TileWalk extends Spliterators.AbstractSpliterator<String> {
+        private int[] counts;       //The tiles left for each letter, by code
+        private int[] next;         //The next child to try at each depth, or -1 when there are none left
+        private int[] codes;        //The code of the letter chosen at each depth
+        private char[] word;        //The letters chosen so far
+        private int depth = 0;      //The number of letters chosen so far
+
+        /**
+         * @param counts The number of tiles for each letter, by code, which are used up by the walk
+         * @param tiles The total number of tiles, the longest a word can be
+         */
+        TileWalk(int[] counts, int tiles){
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+            this.counts = counts;
+            next = new int[tiles + 1];
+            codes = new int[tiles];
+            word = new char[tiles];
+            next[0] = tiles == 0 ? -1 : dictionary.firstChild(Dictionary.ROOT);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action){
+            while(depth >= 0){
+                int child = next[depth];
+                if(child == -1){                    //Every letter at this depth has been tried, so back up
+                    if(--depth >= 0){
+                        counts[codes[depth]]++;
+                    }
+                    continue;
+                }
+                next[depth] = dictionary.nextSibling(child);
+                int code = dictionary.letterCode(child);
+                if(counts[code] == 0){
+                    continue;
+                }
+                counts[code]--;
+                codes[depth] = code;
+                word[depth] = alphabet.letter(code);
+                depth++;
+                next[depth] = depth < word.length ? dictionary.firstChild(child) : -1;
+                if(dictionary.isWord(child)){
+                    action.accept(new String(word, 0, depth));
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Finds the words which use exactly the given letters, each as many times as it is given.
+     * @param letters The letters, in any order and with repeats
+     * @return The words
+     */
+    public Stream<String> anagrams(String letters){
+        long mask = mask(letters);
+        if(mask == -1){
+            return Stream.empty();
+        }
+        int[] counts = counts(letters);
+        int[] used = new int[counts.length];
+        int from = lengthStart(letters.length());
+        int to = lengthStart(letters.length()+1);
+        while(from < to){                                   //Binary search for the group with the mask
+            int middle = (from + to) >>> 1;
+            if(Long.compareUnsigned(groupMasks[middle], mask) < 0){
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        int g = from;
+        if(g == groupMasks.length || groupLengths[g] != letters.length() || groupMasks[g] != mask){
+            return Stream.empty();
+        }
+        return words(g).filter(w -> fits(w, counts, used)).mapToObj(this::word);
+    }
+
+    /**
+     * Finds the words matching a pattern, where a '?' stands for any one letter and any other character must
+     * appear in that place.
+     * @param pattern A pattern such as "q?i?e"
+     * @return The words, in alphabet order within each set of letters used
+     */
+    public Stream<String> matching(String pattern){
+        long required = mask(pattern.replace("?", ""));
+        if(required == -1){
+            return Stream.empty();
+        }
+        return IntStream.range(lengthStart(pattern.length()), lengthStart(pattern.length()+1))
+                .filter(g -> (groupMasks[g] & required) == required)
+                .flatMap(g -> words(g).filter(w -> matches(w, pattern)))
+                .mapToObj(this::word);
+    }
+
+    /**
+     * @param group A group
+     * @return The words in the group
+     */
+    private IntStream words(int group){
+        return IntStream.range(groupStarts[group], groupStarts[group+1]);
+    }
+
+    /**
+     * @param length A word length
+     * @return The first group of words of at least that length
+     */
+    private int lengthStart(int length){
+        int from = 0;
+        int to = groupLengths.length;
+        while(from < to){
+            int middle = (from + to) >>> 1;
+            if(groupLengths[middle] < length){
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * @param letters Letters of the alphabet
+     * @return The number of times each letter appears, by code
+     */
+    private int[] counts(CharSequence letters){
+        int[] counts = new int[alphabet.size()];
+        for(int i=0;i<letters.length();i++){
+            counts[alphabet.code(letters.charAt(i))]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the word's letters in one pass, stopping at the first letter used more times than it is available.
+     * @param word A word in the index
+     * @param counts The number of each letter available
+     * @param used All zero, for counting the word's letters in, and left all zero afterwards
+     * @return True if the word uses no letter more times than it is available
+     */
+    private boolean fits(int word, int[] counts, int[] used){
+        int start = wordStarts[word];
+        int end = wordStarts[word+1];
+        boolean fits = true;
+        int i = start;
+        for(;i<end && fits;i++){
+            int code = alphabet.code(letters[i]);
+            fits = ++used[code] <= counts[code];
+        }
+        for(int j=start;j<i;j++){
+            used[alphabet.code(letters[j])] = 0;
+        }
+        return fits;
+    }
+
+    /**
+     * @param word A word in the index, the same length as the pattern
+     * @param pattern A pattern where '?' matches any letter
+     * @return True if the word matches the pattern
+     */
+    private boolean matches(int word, String pattern){
+        int start = wordStarts[word];
+        for(int i=0;i<pattern.length();i++){
+            char c = pattern.charAt(i);
+            if(c != '?' && c != letters[start+i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param word A word in the index
+     * @return The word as a String
+     */
+    private String word(int word){
+        return new String(letters, wordStarts[word], wordStarts[word+1] - wordStarts[word]);
+    }
+
+    /**
+     * @return The number of words in the index
+     */
+    public int size(){
+        return wordStarts.length - 1;
+    }
+
+    /**
+     * @return The number of distinct signatures the words are grouped by
+     */
+    public int getGroupCount(){
+        return groupLengths.length;
+    }
+}